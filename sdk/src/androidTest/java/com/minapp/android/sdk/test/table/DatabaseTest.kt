@@ -1,5 +1,6 @@
 package com.minapp.android.sdk.test.table
 
+import com.google.gson.JsonObject
 import com.minapp.android.sdk.BaaS
 import com.minapp.android.sdk.database.Record
 import com.minapp.android.sdk.database.SaveOptions
@@ -99,6 +100,36 @@ class DatabaseTest: BaseTableTest() {
         throw IllegalStateException()
     }
 
+    /**
+     * 更新从服务端拿到的记录：修改过的字段里没有 id，id 要取自记录本身
+     */
+    @Test
+    fun updateFetchedRecordTest() {
+        val id = table.createRecord().put(TableContract.NAME, "Jesse").put(TableContract.AGE, 30).save().id
+
+        val fetched = table.fetchRecord(id)
+        fetched.put(TableContract.NAME, "Harry")
+        fetched.save()
+        assertEquals("Harry", table.fetchRecord(id).getString(TableContract.NAME))
+
+        // 同一个对象第二次保存
+        fetched.put(TableContract.AGE, 31)
+        fetched.save()
+        assertEquals(31, table.fetchRecord(id).getInt(TableContract.AGE))
+
+        fetched.put(TableContract.AGE, 35)
+        fetched.save(SaveOptions().apply { partialUpdate = true })
+        assertEquals(35, table.fetchRecord(id).getInt(TableContract.AGE))
+
+        // 自行构造的记录，所有字段都会提交
+        val json = JsonObject().apply {
+            addProperty(Record.ID, id)
+            addProperty(TableContract.NAME, "Jesse")
+        }
+        Record(table, json).save()
+        assertEquals("Jesse", table.fetchRecord(id).getString(TableContract.NAME))
+    }
+
     /**
      * 测试批量操作
      */
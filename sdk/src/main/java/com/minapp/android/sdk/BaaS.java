@@ -7,19 +7,27 @@ import androidx.annotation.Nullable;
 
 import com.google.gson.JsonElement;
 import com.minapp.android.sdk.auth.Auth;
+import com.minapp.android.sdk.database.BatchResult;
+import com.minapp.android.sdk.database.RecordCache;
 import com.minapp.android.sdk.exception.EmptyResponseException;
 import com.minapp.android.sdk.exception.HttpException;
 import com.minapp.android.sdk.exception.SessionMissingException;
 import com.minapp.android.sdk.model.*;
 import com.minapp.android.sdk.util.BaseCallback;
+import com.minapp.android.sdk.util.ExecutorOptions;
+import com.minapp.android.sdk.util.Lane;
+import com.minapp.android.sdk.util.LaneExecutor;
+import com.minapp.android.sdk.util.ResponseHandler;
 import com.minapp.android.sdk.util.Retrofit2CallbackAdapter;
+import com.minapp.android.sdk.util.ServerClock;
 import com.minapp.android.sdk.util.Util;
 import com.minapp.android.sdk.wechat.WechatComponent;
 import com.minapp.android.sdk.weibo.WeiboComponent;
+import com.minapp.android.sdk.util.Task;
 
 import java.io.IOException;
 import java.util.Calendar;
-import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import okhttp3.ResponseBody;
 
@@ -44,13 +52,49 @@ public class BaaS {
      * @param cb
      * @see #queryBatchOperation(int)
      */
-    public static void queryBatchOperationInBackground(int id, BaseCallback<BatchOperationResp> cb) {
-        Util.inBackground(cb, new Callable<BatchOperationResp>() {
-            @Override
-            public BatchOperationResp call() throws Exception {
-                return Global.httpApi().queryBatchOperation(id).execute().body();
-            }
-        });
+    public static Task<BatchOperationResp> queryBatchOperationInBackground(int id, BaseCallback<BatchOperationResp> cb) {
+        return Util.enqueue(Global.httpApi().queryBatchOperation(id), Util.<BatchOperationResp>identity(), cb);
+    }
+
+    /**
+     * 等待异步的批量操作结束，由后台按指数退避查询 {@link #queryBatchOperation(int)}，
+     * 多个操作共用一个轮询；需要限制等待时间时可以使用 {@link Task#timeout(long)}
+     * @param cb 批量操作结束后拿到最终结果
+     */
+    public static Task<BatchOperationResp> awaitBatchOperationInBackground(int id, @NonNull BaseCallback<BatchOperationResp> cb) {
+        return Util.deliver(BatchOperationTracker.get().track(id), cb);
+    }
+
+    /**
+     * sdk 内部使用，与 {@link #awaitBatchOperationInBackground(int, BaseCallback)} 相同，但不回调到主线程
+     */
+    public static Task<BatchOperationResp> _awaitBatchOperation(int id) {
+        return BatchOperationTracker.get().track(id);
+    }
+
+    /**
+     * 同步等待异步的批量操作结束
+     * @see #awaitBatchOperationInBackground(int, BaseCallback)
+     */
+    public static BatchOperationResp awaitBatchOperation(int id) throws Exception {
+        Task<BatchOperationResp> task = BatchOperationTracker.get().track(id);
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * @return result 不是异步操作时返回 null
+     * @see BatchResult#isAsync()
+     */
+    public static @Nullable BatchOperationResp awaitBatchOperation(@NonNull BatchResult result) throws Exception {
+        return result.isAsync() ? awaitBatchOperation(result.getOperationId()) : null;
     }
 
     /**
@@ -68,13 +112,52 @@ public class BaaS {
      * @param host      设置自定义域名
      */
     public static void init(String clientId, String host, @NonNull Application application) {
+        init(clientId, host, application, null);
+    }
+
+    /**
+     * 完成 sdk 的初始化
+     * @param clientId      ID 为知晓云应用的 ClientID，可通过知晓云管理后台进行获取
+     * @param host      设置自定义域名
+     * @param executorOptions   后台线程池的配置，null 表示使用默认配置
+     */
+    public static void init(String clientId, String host, @NonNull Application application,
+                            @Nullable ExecutorOptions executorOptions) {
         Util.assetNotNull(application);
+        if (executorOptions != null) {
+            Global.setExecutorOptions(executorOptions);
+        }
         Config.setClientId(clientId);
         Config.setEndpoint(host);
         Global.setApplicaiton(application);
         Auth.init();
     }
 
+    /**
+     * 后台线程池某个通道的运行状态，比如排队的任务数、平均排队时间
+     */
+    public static LaneExecutor.Stats getExecutorStats(@NonNull Lane lane) {
+        return Global.executor().stats(lane);
+    }
+
+    /**
+     * 内存中 {@link com.minapp.android.sdk.database.Record} 缓存的命中情况
+     * @return 没有开启缓存时返回 null
+     * @see Config#setRecordCacheSize(int)
+     */
+    public static @Nullable RecordCache.Stats getRecordCacheStats() {
+        RecordCache cache = Global.recordCache();
+        return cache != null ? cache.stats() : null;
+    }
+
+    /**
+     * 立即写入 {@link com.minapp.android.sdk.database.Record#saveLater(BaseCallback)} 中等待合并的修改，
+     * 比如 Activity#onPause 时
+     */
+    public static void flushPendingWrites() {
+        Global.writeBehindQueue().flush();
+    }
+
     /**
      * 如果要调用微信相关的 api，则需要初始化微信组件
      */
@@ -164,23 +247,30 @@ public class BaaS {
      * 通过该接口获取服务器时间，主要有以下应用场景：
      * 1. 用于时间校准
      * 2. 用于数据查
+     * 每次调用都会精确地校准 {@link ServerClock}（其他请求只用 Date 头按秒校准）
      */
     public static @Nullable Calendar getServerDate() throws Exception {
+        long requestAt = System.currentTimeMillis();
         ServerDateResp body = Global.httpApi().getServerDate().execute().body();
-        return body != null ? body.getTime() : null;
+        Calendar time = body != null ? body.getTime() : null;
+        ServerClock.update(time, requestAt, System.currentTimeMillis());
+        return time;
     }
 
     /**
      * @see #getServerDate()
      * @param cb
      */
-    public static void getServerDateInBackground(BaseCallback<Calendar> cb) {
-        Util.inBackground(cb, new Callable<Calendar>() {
+    public static Task<Calendar> getServerDateInBackground(BaseCallback<Calendar> cb) {
+        final long requestAt = System.currentTimeMillis();
+        return Util.enqueue(Global.httpApi().getServerDate(), new ResponseHandler<ServerDateResp, Calendar>() {
             @Override
-            public Calendar call() throws Exception {
-                return getServerDate();
+            public Calendar handle(ServerDateResp body) {
+                Calendar time = body != null ? body.getTime() : null;
+                ServerClock.update(time, requestAt, System.currentTimeMillis());
+                return time;
             }
-        });
+        }, cb);
     }
 
 }
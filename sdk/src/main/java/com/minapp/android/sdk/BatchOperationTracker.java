@@ -0,0 +1,187 @@
+package com.minapp.android.sdk;
+
+import androidx.annotation.NonNull;
+import com.minapp.android.sdk.exception.HttpException;
+import com.minapp.android.sdk.model.BatchOperationResp;
+import com.minapp.android.sdk.util.Task;
+import com.minapp.android.sdk.util.Util;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 跟踪异步的批量操作直到结束：所有正在跟踪的 operation id 共用一个定时器，
+ * 每个 id 各自按指数退避（{@link Const#BATCH_OPERATION_POLL_INITIAL_DELAY} 起每次翻倍，
+ * 不超过 {@link Const#BATCH_OPERATION_POLL_MAX_DELAY}）查询 {@link BaaS#queryBatchOperation(int)}；
+ * 同一个 id 被多次跟踪时只查询一次
+ */
+final class BatchOperationTracker {
+
+    private static final BatchOperationTracker INSTANCE = new BatchOperationTracker();
+
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private ScheduledFuture<?> timer;
+    private long timerAt;
+
+    private BatchOperationTracker() {}
+
+    static BatchOperationTracker get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return 批量操作结束（status 不再是 pending）时以查询结果结束；
+     * 4xx 时以 {@link HttpException} 结束，网络错误和 5xx 会继续重试。取消返回的 Task 只会停止这一次跟踪
+     */
+    Task<BatchOperationResp> track(final int operationId) {
+        final Task<BatchOperationResp> task = new Task<>();
+        synchronized (this) {
+            Entry entry = entries.get(operationId);
+            if (entry == null) {
+                entry = new Entry(operationId);
+                entries.put(operationId, entry);
+            }
+            entry.tasks.add(task);
+            reschedule();
+        }
+        task.addCancelHook(new Runnable() {
+            @Override
+            public void run() {
+                untrack(operationId, task);
+            }
+        });
+        return task;
+    }
+
+
+    /*************************** private method ***********************************/
+
+
+    private synchronized void untrack(int operationId, Task<BatchOperationResp> task) {
+        Entry entry = entries.get(operationId);
+        if (entry != null) {
+            entry.tasks.remove(task);
+            if (entry.tasks.isEmpty()) {
+                entries.remove(operationId);
+                reschedule();
+            }
+        }
+    }
+
+    /**
+     * 定时器总是对准最早需要查询的 id
+     */
+    private synchronized void reschedule() {
+        long next = Long.MAX_VALUE;
+        for (Entry entry : entries.values()) {
+            if (!entry.polling) {
+                next = Math.min(next, entry.nextPollAt);
+            }
+        }
+        if (timer != null && timerAt <= next) {
+            return;
+        }
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+        if (next != Long.MAX_VALUE) {
+            timerAt = next;
+            long delay = TimeUnit.NANOSECONDS.toMillis(Math.max(0, next - System.nanoTime()));
+            timer = Global.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    tick();
+                }
+            }, delay);
+        }
+    }
+
+    private void tick() {
+        List<Entry> due = new ArrayList<>();
+        synchronized (this) {
+            timer = null;
+            long now = System.nanoTime();
+            for (Entry entry : entries.values()) {
+                if (!entry.polling && entry.nextPollAt <= now) {
+                    entry.polling = true;
+                    due.add(entry);
+                }
+            }
+            reschedule();
+        }
+        for (Entry entry : due) {
+            poll(entry);
+        }
+    }
+
+    private void poll(final Entry entry) {
+        Global.httpApi().queryBatchOperation(entry.operationId).enqueue(new Callback<BatchOperationResp>() {
+            @Override
+            public void onResponse(Call<BatchOperationResp> call, Response<BatchOperationResp> response) {
+                BatchOperationResp resp = response.body();
+                if (resp != null && BatchOperationResp.STATUS_PENDING.equalsIgnoreCase(resp.getStatus())) {
+                    backoff(entry);
+                } else {
+                    finish(entry, resp, null);
+                }
+            }
+
+            @Override
+            public void onFailure(Call<BatchOperationResp> call, Throwable t) {
+                if (t instanceof HttpException && ((HttpException) t).getCode() < 500) {
+                    finish(entry, null, t);
+                } else {
+                    backoff(entry);
+                }
+            }
+        }, Util.directExecutor());
+    }
+
+    private synchronized void backoff(Entry entry) {
+        entry.polling = false;
+        entry.delay = Math.min(entry.delay * 2, Const.BATCH_OPERATION_POLL_MAX_DELAY);
+        entry.nextPollAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(entry.delay);
+        reschedule();
+    }
+
+    private void finish(Entry entry, BatchOperationResp resp, Throwable error) {
+        List<Task<BatchOperationResp>> tasks;
+        synchronized (this) {
+            if (entries.get(entry.operationId) == entry) {
+                entries.remove(entry.operationId);
+            }
+            tasks = new ArrayList<>(entry.tasks);
+            entry.tasks.clear();
+        }
+        for (Task<BatchOperationResp> task : tasks) {
+            if (error != null) {
+                task.completeExceptionally(error);
+            } else {
+                task.complete(resp);
+            }
+        }
+    }
+
+
+    private static class Entry {
+
+        final int operationId;
+        final List<Task<BatchOperationResp>> tasks = new ArrayList<>();
+        long delay = Const.BATCH_OPERATION_POLL_INITIAL_DELAY;
+        long nextPollAt;
+        boolean polling = false;
+
+        Entry(int operationId) {
+            this.operationId = operationId;
+            this.nextPollAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+        }
+    }
+}
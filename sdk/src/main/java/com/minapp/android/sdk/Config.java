@@ -1,13 +1,19 @@
 package com.minapp.android.sdk;
 
+import android.app.Application;
+
 import androidx.annotation.Nullable;
 
+import com.minapp.android.sdk.database.CachePolicy;
+import com.minapp.android.sdk.database.Record;
+import com.minapp.android.sdk.database.RecordStore;
 import com.minapp.android.sdk.util.Util;
 
 import org.jetbrains.annotations.NotNull;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 全局配置
@@ -23,8 +29,51 @@ public class Config {
     public static final String ENDPOINT_KEY = "ENDPOINT_KEY";
     public static final String DEFAULT_ENDPOINT = "https://api.myminapp.com/";
 
+    /**
+     * http 磁盘缓存的大小上限，单位字节，超出后按 LRU 淘汰；设置为 0 则关闭缓存
+     */
+    public static final String HTTP_CACHE_SIZE_KEY = "HTTP_CACHE_SIZE_KEY";
+    public static final long DEFAULT_HTTP_CACHE_SIZE = 10 * 1024 * 1024;
+
+    /**
+     * 是否开启本地的 {@link Record} 缓存
+     * @see RecordStore
+     */
+    public static final String RECORD_STORE_ENABLED_KEY = "RECORD_STORE_ENABLED_KEY";
+
+    /**
+     * 内存中 {@link Record} 缓存的大小上限，单位字节，默认为 0 即不开启
+     * @see com.minapp.android.sdk.database.RecordCache
+     */
+    public static final String RECORD_CACHE_SIZE_KEY = "RECORD_CACHE_SIZE_KEY";
+
+    /**
+     * 是否合并相同的并发 GET 请求，默认开启
+     * @see com.minapp.android.sdk.auth.SingleFlightInterceptor
+     */
+    public static final String REQUEST_COALESCING_ENABLED_KEY = "REQUEST_COALESCING_ENABLED_KEY";
+
+    /**
+     * 下载文件的磁盘缓存的大小上限，单位字节，超出后按 LRU 淘汰
+     * @see com.minapp.android.sdk.storage.DownloadCache
+     */
+    public static final String DOWNLOAD_CACHE_SIZE_KEY = "DOWNLOAD_CACHE_SIZE_KEY";
+    public static final long DEFAULT_DOWNLOAD_CACHE_SIZE = 100 * 1024 * 1024;
+
+    /**
+     * 延迟写入时，同一条记录的修改最多等待多久（毫秒）后合并写入
+     * @see com.minapp.android.sdk.database.WriteBehindQueue
+     */
+    public static final String WRITE_BEHIND_WINDOW_KEY = "WRITE_BEHIND_WINDOW_KEY";
+    public static final long DEFAULT_WRITE_BEHIND_WINDOW = 500;
+
     private static final Map<String, Object> CONFIG = new HashMap<>();
 
+    /**
+     * GET 接口的缓存有效期，key 是接口路径的片段（比如 "content/detail/"），value 的单位是秒
+     */
+    private static final Map<String, Integer> HTTP_CACHE_MAX_AGE = new ConcurrentHashMap<>();
+
     public static @Nullable String getClientId() {
         return (String) CONFIG.get(CLIENT_ID);
     }
@@ -47,4 +96,115 @@ public class Config {
         }
         return DEFAULT_ENDPOINT;
     }
+
+    /**
+     * 设置 http 磁盘缓存的大小，需要在 {@link BaaS#init(String, Application)} 之前调用
+     * @param bytes 为 0 时关闭缓存
+     */
+    public static void setHttpCacheSize(long bytes) {
+        CONFIG.put(HTTP_CACHE_SIZE_KEY, bytes);
+    }
+
+    public static long getHttpCacheSize() {
+        Object value = CONFIG.get(HTTP_CACHE_SIZE_KEY);
+        return value instanceof Long ? (Long) value : DEFAULT_HTTP_CACHE_SIZE;
+    }
+
+    /**
+     * 为 GET 接口设置缓存有效期，有效期内的重复请求直接从磁盘缓存返回，过期后带上 ETag / Last-Modified 重新校验
+     * 默认不设置有效期，此时只有服务端返回了缓存相关的头才会缓存
+     * @param path 接口路径的片段，比如 "content/detail/"、"content/category/"
+     * @param seconds 小于等于 0 时移除该设置
+     */
+    public static void setHttpCacheMaxAge(@NotNull String path, int seconds) {
+        Util.assetNotNull(path);
+        if (seconds > 0) {
+            HTTP_CACHE_MAX_AGE.put(path, seconds);
+        } else {
+            HTTP_CACHE_MAX_AGE.remove(path);
+        }
+    }
+
+    /**
+     * @param encodedPath 请求的路径
+     * @return 匹配到的缓存有效期（秒），没有匹配到则返回 0
+     * @see #setHttpCacheMaxAge(String, int)
+     */
+    public static int getHttpCacheMaxAge(@Nullable String encodedPath) {
+        if (encodedPath != null && !HTTP_CACHE_MAX_AGE.isEmpty()) {
+            for (Map.Entry<String, Integer> entry : HTTP_CACHE_MAX_AGE.entrySet()) {
+                if (encodedPath.contains(entry.getKey())) {
+                    return entry.getValue();
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 开启后，{@link Record} 的查询结果会写入本地数据库，配合 {@link CachePolicy} 使用
+     */
+    public static void setRecordStoreEnabled(boolean enabled) {
+        CONFIG.put(RECORD_STORE_ENABLED_KEY, enabled);
+    }
+
+    public static boolean isRecordStoreEnabled() {
+        return Boolean.TRUE.equals(CONFIG.get(RECORD_STORE_ENABLED_KEY));
+    }
+
+    /**
+     * 开启后，同时发起的相同 GET 请求（比如多个 Fragment 同时读取同一个用户）只会发出一次，共享同一个响应；
+     * 只对 {@link com.minapp.android.sdk.user.Users#user(String)}、{@link com.minapp.android.sdk.content.Contents#content(String)}
+     * 和 {@link com.minapp.android.sdk.storage.Storage#file(String)} 生效，默认关闭
+     */
+    public static void setRequestCoalescingEnabled(boolean enabled) {
+        CONFIG.put(REQUEST_COALESCING_ENABLED_KEY, enabled);
+    }
+
+    public static boolean isRequestCoalescingEnabled() {
+        return Boolean.TRUE.equals(CONFIG.get(REQUEST_COALESCING_ENABLED_KEY));
+    }
+
+    /**
+     * 开启内存中的 {@link Record} 缓存：查询、保存、获取的记录会被缓存，
+     * 之后 {@link com.minapp.android.sdk.database.Table#fetchRecord(String)} 等方法会优先读取缓存；
+     * 需要在第一次读写数据之前设置
+     * @param maxBytes 缓存的大小上限，单位字节，0 表示关闭
+     * @see CachePolicy#NETWORK_ONLY
+     */
+    public static void setRecordCacheSize(int maxBytes) {
+        CONFIG.put(RECORD_CACHE_SIZE_KEY, maxBytes);
+    }
+
+    public static int getRecordCacheSize() {
+        Object size = CONFIG.get(RECORD_CACHE_SIZE_KEY);
+        return size instanceof Integer ? (Integer) size : 0;
+    }
+
+    /**
+     * 设置下载文件的磁盘缓存的大小，需要在第一次下载之前调用
+     * @param bytes 为 0 时只保留最近一次下载的文件
+     * @see com.minapp.android.sdk.storage.Storage#download(com.minapp.android.sdk.storage.CloudFile)
+     */
+    public static void setDownloadCacheSize(long bytes) {
+        CONFIG.put(DOWNLOAD_CACHE_SIZE_KEY, bytes);
+    }
+
+    public static long getDownloadCacheSize() {
+        Object value = CONFIG.get(DOWNLOAD_CACHE_SIZE_KEY);
+        return value instanceof Long ? (Long) value : DEFAULT_DOWNLOAD_CACHE_SIZE;
+    }
+
+    /**
+     * 设置延迟写入的合并窗口，窗口越大合并的修改越多，但写入服务端的延迟也越大
+     * @see Record#saveLater(com.minapp.android.sdk.util.BaseCallback)
+     */
+    public static void setWriteBehindWindow(long mills) {
+        CONFIG.put(WRITE_BEHIND_WINDOW_KEY, mills);
+    }
+
+    public static long getWriteBehindWindow() {
+        Object value = CONFIG.get(WRITE_BEHIND_WINDOW_KEY);
+        return value instanceof Long ? (Long) value : DEFAULT_WRITE_BEHIND_WINDOW;
+    }
 }
@@ -4,6 +4,8 @@ public abstract class Const {
 
     public static final String TAG = "minapp-android-sdk";
     public static final long HTTP_TIMEOUT = 20 * 1000;      // http 读、写、连接的超时设置，单位毫秒
+    public static final int HTTP_MAX_REQUESTS = 64;         // 异步请求的最大并发数
+    public static final int HTTP_MAX_REQUESTS_PER_HOST = 16;    // 同一个 host 的异步请求的最大并发数
     public static final String HTTP_HEADER_AUTH_PREFIX = "Hydrogen-r1 ";
     public static final String HTTP_HEADER_AUTH = "authorization";
     public static final String HTTP_HEADER_PLATFORM = "X-Hydrogen-Client-Platform";
@@ -20,6 +22,13 @@ public abstract class Const {
 
     public static final String COMMA = ",";
     public static final String SP_NAME = "hydrogen_android_sdk";
+    public static final String HTTP_CACHE_DIR = "hydrogen_http_cache";
+    public static final long BATCH_OPERATION_POLL_INITIAL_DELAY = 500;     // 查询异步批量操作的第一次间隔，单位毫秒
+    public static final long BATCH_OPERATION_POLL_MAX_DELAY = 10 * 1000;   // 间隔每次翻倍，不超过该值
+    public static final String DOWNLOAD_CACHE_DIR = "hydrogen_download_cache";
+    public static final long UPLOAD_FETCH_INITIAL_DELAY = 200;     // 上传后获取文件信息，第一次 404 后的重试间隔，单位毫秒
+    public static final long UPLOAD_FETCH_MAX_DELAY = 3 * 1000;    // 重试间隔每次翻倍，不超过该值
+    public static final long UPLOAD_FETCH_MAX_WAIT = 30 * 1000;    // 超过该时间仍然 404，则以 TimeoutException 结束
 
     public static final String WX_OAUTH_SCOPE = "snsapi_userinfo";
     public static final String WX_OAUTH_STATE = "wechat_sdk_demo_test";
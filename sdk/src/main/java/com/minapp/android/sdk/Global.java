@@ -11,23 +11,41 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.minapp.android.sdk.auth.AuthInterceptor;
 import com.minapp.android.sdk.auth.CheckedCallAdapterFactory;
+import com.minapp.android.sdk.auth.SingleFlightInterceptor;
 import com.minapp.android.sdk.database.GeoPoint;
 import com.minapp.android.sdk.database.GeoPolygon;
+import com.minapp.android.sdk.database.RecordCache;
+import com.minapp.android.sdk.database.RecordStore;
+import com.minapp.android.sdk.database.WriteBehindQueue;
 import com.minapp.android.sdk.database.query.Condition;
 import com.minapp.android.sdk.database.query.ConditionNode;
 import com.minapp.android.sdk.database.query.WithinCircle;
+import com.minapp.android.sdk.storage.DownloadCache;
 import com.minapp.android.sdk.database.query.WithinRegion;
 import com.minapp.android.sdk.typeadapter.*;
 import com.minapp.android.sdk.util.*;
+import android.util.Log;
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 public abstract class Global {
@@ -35,10 +53,33 @@ public abstract class Global {
     private static HttpApi HTTP_API;
     private static Gson GSON;
     private static Gson GSON_PRINT;
-    private static ExecutorService EXECUTOR_SERVICE;
+    private static LaneExecutor EXECUTOR;
+    private static ScheduledExecutorService SCHEDULER;
+    private static ExecutorOptions EXECUTOR_OPTIONS = new ExecutorOptions();
     private static Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
     private static Application APP = null;
     private static OkHttpClient CLIENT = null;
+    private static Cache HTTP_CACHE = null;
+    private static RecordStore RECORD_STORE = null;
+    private static RecordCache RECORD_CACHE = null;
+    private static DownloadCache DOWNLOAD_CACHE = null;
+    private static final WriteBehindQueue WRITE_BEHIND_QUEUE = new WriteBehindQueue();
+    private static final Object CLEAR_LOCK = new Object();
+
+    /**
+     * http 缓存正在清空时，不读取缓存中上一个用户的响应
+     */
+    private static final Interceptor FORCE_NETWORK_WHILE_CLEARING = new Interceptor() {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            if (isClearingCaches()) {
+                request = request.newBuilder().cacheControl(CacheControl.FORCE_NETWORK).build();
+            }
+            return chain.proceed(request);
+        }
+    };
+    private static int PENDING_CLEARS = 0;
 
     private static DoubleCheckProvider<HttpApi> UPLOAD_HTTP_API =
             new DoubleCheckProvider<HttpApi>(Global.class) {
@@ -49,6 +90,22 @@ public abstract class Global {
             };
 
 
+    private static DoubleCheckProvider<OkHttpClient> STORAGE_HTTP_CLIENT =
+            new DoubleCheckProvider<OkHttpClient>(Global.class) {
+                @Override
+                public OkHttpClient create() {
+                    return new OkHttpClient.Builder()
+                            .followRedirects(true)
+                            .followSslRedirects(true)
+                            .connectTimeout(Const.HTTP_TIMEOUT, TimeUnit.MILLISECONDS)
+                            .readTimeout(Const.HTTP_TIMEOUT, TimeUnit.MILLISECONDS)
+                            .writeTimeout(Const.HTTP_TIMEOUT, TimeUnit.MILLISECONDS)
+                            .retryOnConnectionFailure(true)
+                            .build();
+                }
+            };
+
+
     public static @Nullable Application getApplication() {
         return APP;
     }
@@ -70,6 +127,14 @@ public abstract class Global {
         return UPLOAD_HTTP_API.get();
     }
 
+    /**
+     * 直接访问又拍云等第三方存储，不带 sdk 的认证头和 cookie
+     * @return
+     */
+    public static OkHttpClient storageHttpClient() {
+        return STORAGE_HTTP_CLIENT.get();
+    }
+
     public static HttpApi httpApi() {
         if (HTTP_API == null) {
             synchronized (Global.class) {
@@ -107,19 +172,153 @@ public abstract class Global {
         return GSON_PRINT;
     }
 
+    /**
+     * @return 未初始化、没有开启或者正在清空（见 {@link #clearCaches()}）时返回 null
+     * @see Config#setRecordStoreEnabled(boolean)
+     */
+    public static @Nullable RecordStore recordStore() {
+        if (!Config.isRecordStoreEnabled() || isClearingCaches()) {
+            return null;
+        }
+        return createRecordStore();
+    }
+
+    private static @Nullable RecordStore createRecordStore() {
+        if (RECORD_STORE == null) {
+            synchronized (Global.class) {
+                Application app = getApplication();
+                if (RECORD_STORE == null && app != null) {
+                    RECORD_STORE = new RecordStore(app);
+                }
+            }
+        }
+        return RECORD_STORE;
+    }
+
+    /**
+     * @return 没有开启时返回 null
+     * @see Config#setRecordCacheSize(int)
+     */
+    public static @Nullable RecordCache recordCache() {
+        int size = Config.getRecordCacheSize();
+        if (size <= 0) {
+            return null;
+        }
+        if (RECORD_CACHE == null) {
+            synchronized (Global.class) {
+                if (RECORD_CACHE == null) {
+                    RECORD_CACHE = new RecordCache(size);
+                }
+            }
+        }
+        return RECORD_CACHE;
+    }
+
+    /**
+     * 下载文件的缓存放在 app 的 cache 目录下；正在清空（见 {@link #clearCaches()}）时等待清空结束，所以不要在主线程调用
+     * @return 未初始化时返回 null
+     * @see Config#setDownloadCacheSize(long)
+     */
+    public static @Nullable DownloadCache downloadCache() throws InterruptedException {
+        synchronized (CLEAR_LOCK) {
+            while (PENDING_CLEARS > 0) {
+                CLEAR_LOCK.wait();
+            }
+        }
+        return createDownloadCache();
+    }
+
+    private static @Nullable DownloadCache createDownloadCache() {
+        if (DOWNLOAD_CACHE == null) {
+            synchronized (Global.class) {
+                Application app = getApplication();
+                if (DOWNLOAD_CACHE == null && app != null) {
+                    DOWNLOAD_CACHE = new DownloadCache(
+                            new File(app.getCacheDir(), Const.DOWNLOAD_CACHE_DIR), Config.getDownloadCacheSize());
+                }
+            }
+        }
+        return DOWNLOAD_CACHE;
+    }
+
+    /**
+     * @see com.minapp.android.sdk.database.Record#saveLater(BaseCallback)
+     */
+    public static WriteBehindQueue writeBehindQueue() {
+        return WRITE_BEHIND_QUEUE;
+    }
+
     public static Future<?> submit(Runnable task) {
-        return executorService().submit(task);
+        return submit(Lane.INTERACTIVE, task);
+    }
+
+    public static <T> Future<T> submit(Callable<T> task) {
+        return submit(Lane.INTERACTIVE, task);
     }
 
-    static ExecutorService executorService() {
-        if (EXECUTOR_SERVICE == null) {
+    /**
+     * @throws java.util.concurrent.RejectedExecutionException 该通道的队列已满
+     */
+    public static Future<?> submit(Lane lane, Runnable task) {
+        return executor().submit(lane, task);
+    }
+
+    /**
+     * @throws java.util.concurrent.RejectedExecutionException 该通道的队列已满
+     */
+    public static <T> Future<T> submit(Lane lane, Callable<T> task) {
+        return executor().submit(lane, task);
+    }
+
+    /**
+     * 延迟 delayMills 毫秒执行，只用于超时、轮询等轻量的定时任务，不要执行网络请求
+     */
+    public static ScheduledFuture<?> schedule(Runnable task, long delayMills) {
+        return scheduler().schedule(task, delayMills, TimeUnit.MILLISECONDS);
+    }
+
+    private static ScheduledExecutorService scheduler() {
+        if (SCHEDULER == null) {
             synchronized (Global.class) {
-                if (EXECUTOR_SERVICE == null) {
-                    EXECUTOR_SERVICE = Executors.newFixedThreadPool(5);
+                if (SCHEDULER == null) {
+                    SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "hydrogen-scheduler");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
                 }
             }
         }
-        return EXECUTOR_SERVICE;
+        return SCHEDULER;
+    }
+
+    static LaneExecutor executor() {
+        if (EXECUTOR == null) {
+            synchronized (Global.class) {
+                if (EXECUTOR == null) {
+                    EXECUTOR = new LaneExecutor(EXECUTOR_OPTIONS);
+                }
+            }
+        }
+        return EXECUTOR;
+    }
+
+    /**
+     * 替换线程池的配置，已经创建的线程池会在执行完已提交的任务后关闭
+     */
+    static void setExecutorOptions(@NonNull ExecutorOptions options) {
+        LaneExecutor old;
+        synchronized (Global.class) {
+            EXECUTOR_OPTIONS = options;
+            old = EXECUTOR;
+            EXECUTOR = null;
+        }
+        if (old != null) {
+            old.shutdown();
+        }
     }
 
     private static GsonBuilder createGson() {
@@ -145,7 +344,8 @@ public abstract class Global {
         if (CLIENT == null) {
             synchronized (Global.class) {
                 if (CLIENT == null) {
-                    CLIENT = createHttpClient(Const.HTTP_TIMEOUT);
+                    HTTP_CACHE = createHttpCache();
+                    CLIENT = createHttpClient(Const.HTTP_TIMEOUT, HTTP_CACHE);
                 }
             }
         }
@@ -163,8 +363,119 @@ public abstract class Global {
     }
 
 
+    /**
+     * 清空 http 磁盘缓存、本地的 {@link RecordStore}、内存中的 {@link RecordCache} 和下载的文件，比如切换用户时，避免读到上一个用户的数据；
+     * 磁盘上的缓存在后台清空，清空之前请求不读 http 缓存，{@link #recordStore()} 返回 null，
+     * {@link #downloadCache()} 等待清空结束，不会读到上一个用户的数据；不要在持有锁时调用
+     */
+    public static void clearCaches() {
+        RecordCache cache = RECORD_CACHE;
+        if (cache != null) {
+            cache.clear();
+        }
+
+        synchronized (CLEAR_LOCK) {
+            PENDING_CLEARS++;
+        }
+        Runnable clear = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    clearHttpCache();
+                    clearDiskCaches();
+                } finally {
+                    synchronized (CLEAR_LOCK) {
+                        PENDING_CLEARS--;
+                        CLEAR_LOCK.notifyAll();
+                    }
+                }
+            }
+        };
+        try {
+            submit(Lane.BULK, clear);
+        } catch (RejectedExecutionException e) {
+            new Thread(clear, "hydrogen-clear-caches").start();
+        }
+    }
+
+    /**
+     * 即使还没有用到过 {@link RecordStore} 和 {@link DownloadCache}（比如 app 重启后直接登出），上一个用户的数据也可能留在磁盘上
+     */
+    private static void clearDiskCaches() {
+        Application app = getApplication();
+        if (app == null) {
+            return;
+        }
+        try {
+            if (Config.isRecordStoreEnabled()) {
+                RecordStore store = createRecordStore();
+                if (store != null) {
+                    store.clear();
+                }
+            } else {
+                app.deleteDatabase(RecordStore.DB_NAME);
+            }
+        } catch (Exception e) {
+            Log.e(Const.TAG, e.getMessage(), e);
+        }
+
+        DownloadCache downloadCache = createDownloadCache();
+        if (downloadCache != null) {
+            downloadCache.clear();
+        }
+    }
+
+    private static boolean isClearingCaches() {
+        synchronized (CLEAR_LOCK) {
+            return PENDING_CLEARS > 0;
+        }
+    }
+
+    /**
+     * 清空 http 磁盘缓存
+     */
+    public static void clearHttpCache() {
+        Cache cache = HTTP_CACHE;
+        if (cache != null) {
+            try {
+                cache.evictAll();
+            } catch (Exception e) {
+                Log.e(Const.TAG, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 缓存放在 app 的 cache 目录下，由 {@link Cache} 负责 LRU 淘汰和条件请求（ETag / Last-Modified）
+     * @return 未初始化或关闭了缓存时返回 null
+     */
+    private static @Nullable Cache createHttpCache() {
+        long size = Config.getHttpCacheSize();
+        Application app = getApplication();
+        if (size <= 0 || app == null) {
+            return null;
+        }
+        return new Cache(new File(app.getCacheDir(), Const.HTTP_CACHE_DIR), size);
+    }
+
+    /**
+     * *InBackground 方法通过 enqueue 发起请求，由 Dispatcher 控制并发数，而不是 sdk 的线程池
+     */
+    private static Dispatcher createDispatcher() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(Const.HTTP_MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(Const.HTTP_MAX_REQUESTS_PER_HOST);
+        return dispatcher;
+    }
+
     private static OkHttpClient createHttpClient(long timeoutMills) {
+        return createHttpClient(timeoutMills, null);
+    }
+
+    private static OkHttpClient createHttpClient(long timeoutMills, @Nullable Cache cache) {
         return new OkHttpClient.Builder()
+                .addInterceptor(new SingleFlightInterceptor())
+                .addInterceptor(FORCE_NETWORK_WHILE_CLEARING)
                 .followRedirects(true)
                 .followSslRedirects(true)
                 .connectTimeout(timeoutMills, TimeUnit.MILLISECONDS)
@@ -174,6 +485,10 @@ public abstract class Global {
                 .retryOnConnectionFailure(true)
                 .addNetworkInterceptor(new AuthInterceptor())
                 .addNetworkInterceptor(new ContentTypeInterceptor())
+                .addNetworkInterceptor(new CacheControlInterceptor())
+                .addNetworkInterceptor(new ServerClockInterceptor())
+                .cache(cache)
+                .dispatcher(createDispatcher())
                 .build();
     }
 
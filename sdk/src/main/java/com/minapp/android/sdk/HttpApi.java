@@ -19,6 +19,7 @@ import com.minapp.android.sdk.util.PagedListResponse;
 import com.minapp.android.sdk.wechat.WechatOrder;
 import com.minapp.android.sdk.wechat.WechatOrderResp;
 import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
 import retrofit2.http.*;
 
 import java.util.List;
@@ -352,6 +353,19 @@ public interface HttpApi {
             @QueryMap Query query
     );
 
+    /**
+     * 查询记录，不经过 converter，由调用方以流的方式解析
+     * @param tableName
+     * @return
+     * @see com.minapp.android.sdk.typeadapter.RecordPageReader
+     */
+    @Streaming
+    @GET("hserve/v2.4/table/{table_name}/record/")
+    CheckedCall<ResponseBody> queryRecordStream(
+            @Path("table_name") String tableName,
+            @QueryMap Query query
+    );
+
     /**
      * 批量删除
      * @param tableName
@@ -364,6 +378,17 @@ public interface HttpApi {
     );
 
 
+    /**
+     * 继续批量更新
+     * @param url {@link BatchResult#getNext()}
+     */
+    @PUT
+    CheckedCall<BatchResult> batchUpdateNext(
+            @Url String url,
+            @Body Record body
+    );
+
+
     /**
      * 查询异步的批量操作（更新，删除）的结果
      * @param id 异步操作返回的 id
@@ -404,6 +429,7 @@ public interface HttpApi {
      * @param id
      * @return
      */
+    @Coalesce
     @GET("hserve/v2.1/uploaded-file/{file_id}/")
     CheckedCall<CloudFile> file(
             @Path("file_id") String id
@@ -476,6 +502,7 @@ public interface HttpApi {
      * @param id
      * @return
      */
+    @Coalesce
     @GET("hserve/v2.1/user/info/{id}/")
     CheckedCall<User> user(
             @Path("id") String id
@@ -509,6 +536,7 @@ public interface HttpApi {
      * @param id
      * @return
      */
+    @Coalesce
     @GET("hserve/v2.0/content/detail/{id}/")
     CheckedCall<Content> content(
             @Path("id") String id
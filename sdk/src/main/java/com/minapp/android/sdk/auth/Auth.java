@@ -17,11 +17,11 @@ import com.minapp.android.sdk.user.User;
 import com.minapp.android.sdk.user.Users;
 import com.minapp.android.sdk.util.*;
 import com.minapp.android.sdk.util.BaseCallback;
+import com.minapp.android.sdk.util.Task;
 import okhttp3.*;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
-import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -32,7 +32,7 @@ public abstract class Auth {
     static final String TOKEN = "TOKEN";                            // String
     static final String USER_ID = "USER_ID";                        // String
     static final String SIGN_IN_ANONYMOUS = "SIGN_IN_ANONYMOUS";    // Boolean
-    static final String EXPIRES_IN = "EXPIRES_IN";                  // Long，时间戳，单位毫秒
+    static final String EXPIRES_IN = "EXPIRES_IN";                  // Long，时间戳（服务器时间，见 ServerClock），单位毫秒
 
     private static final MemoryCookieJar COOKIE_JAR = new MemoryCookieJar();
     private static HttpApi API;
@@ -63,10 +63,15 @@ public abstract class Auth {
      * 登出
      */
     public static void logout() {
+        boolean signedIn;
         synchronized (AUTH_INFO) {
+            signedIn = AUTH_INFO.get(TOKEN) != null;
             AUTH_INFO.clear();
             storeAuthData();
         }
+        if (signedIn) {
+            Global.clearCaches();
+        }
     }
 
     /**
@@ -77,13 +82,8 @@ public abstract class Auth {
         boolean signedIn = true;
 
         Long expiresAt = getExpiresAt();
-        if (expiresAt != null && expiresAt > 0) {
-            Calendar now = DateUtil.pekingCalendar();
-            Calendar expiresIn = DateUtil.pekingCalendar();
-            expiresIn.setTimeInMillis(expiresAt);
-            if (now.after(expiresIn)) {
-                signedIn = false;
-            }
+        if (expiresAt != null && expiresAt > 0 && ServerClock.now() > expiresAt) {
+            signedIn = false;
         }
 
         if (AUTH_INFO.get(TOKEN) == null) {
@@ -123,8 +123,8 @@ public abstract class Auth {
      * @see #currentUser()
      * @param cb
      */
-    public static void currentUserInBackground(@NonNull final BaseCallback<CurrentUser> cb) {
-        Util.inBackground(cb, new Callable<CurrentUser>() {
+    public static Task<CurrentUser> currentUserInBackground(@NonNull final BaseCallback<CurrentUser> cb) {
+        return Util.inBackground(cb, new Callable<CurrentUser>() {
             @Override
             public CurrentUser call() throws Exception {
                 return Auth.currentUser();
@@ -157,8 +157,8 @@ public abstract class Auth {
      * @param req
      * @param cb
      */
-    public static void signInWithPhoneInBackground(SignInWithPhoneRequest req, @NonNull BaseCallback<User> cb) {
-        Util.inBackground(cb, new Callable<User>() {
+    public static Task<User> signInWithPhoneInBackground(SignInWithPhoneRequest req, @NonNull BaseCallback<User> cb) {
+        return Util.inBackground(cb, new Callable<User>() {
             @Override
             public User call() throws Exception {
                 return Auth.signInWithPhone(req);
@@ -180,8 +180,8 @@ public abstract class Auth {
         return user;
     }
 
-    public static void signUpWithEmailInBackground(final String email, final String pwd, @NonNull BaseCallback<User> cb) {
-        Util.inBackground(cb, new Callable<User>() {
+    public static Task<User> signUpWithEmailInBackground(final String email, final String pwd, @NonNull BaseCallback<User> cb) {
+        return Util.inBackground(cb, new Callable<User>() {
             @Override
             public User call() throws Exception {
                 return Auth.signUpWithEmail(email, pwd);
@@ -202,8 +202,8 @@ public abstract class Auth {
         return user;
     }
 
-    public static void signUpWithUsernameInBackground(final String username, final String pwd, @NonNull BaseCallback<User> cb) {
-        Util.inBackground(cb, new Callable<User>() {
+    public static Task<User> signUpWithUsernameInBackground(final String username, final String pwd, @NonNull BaseCallback<User> cb) {
+        return Util.inBackground(cb, new Callable<User>() {
             @Override
             public User call() throws Exception {
                 return Auth.signUpWithUsername(username, pwd);
@@ -225,8 +225,8 @@ public abstract class Auth {
     }
 
 
-    public static void signInWithEmailInBackground(final String email, final String pwd, @NonNull BaseCallback<User> cb) {
-        Util.inBackground(cb, new Callable<User>() {
+    public static Task<User> signInWithEmailInBackground(final String email, final String pwd, @NonNull BaseCallback<User> cb) {
+        return Util.inBackground(cb, new Callable<User>() {
             @Override
             public User call() throws Exception {
                 return Auth.signInWithEmail(email, pwd);
@@ -248,8 +248,8 @@ public abstract class Auth {
         return info;
     }
 
-    public static void signInWithUsernameInBackground(final String username, final String pwd, @NonNull BaseCallback<User> cb) {
-        Util.inBackground(cb, new Callable<User>() {
+    public static Task<User> signInWithUsernameInBackground(final String username, final String pwd, @NonNull BaseCallback<User> cb) {
+        return Util.inBackground(cb, new Callable<User>() {
             @Override
             public User call() throws Exception {
                 return Auth.signInWithUsername(username, pwd);
@@ -267,8 +267,8 @@ public abstract class Auth {
         signIn(info, true);
     }
 
-    public static void signInAnonymousInBackground(@NonNull BaseCallback<Void> cb) {
-        Util.inBackground(cb, new Callable<Void>() {
+    public static Task<Void> signInAnonymousInBackground(@NonNull BaseCallback<Void> cb) {
+        return Util.inBackground(cb, new Callable<Void>() {
             @Override
             public Void call() throws Exception {
                 Auth.signInAnonymous();
@@ -292,8 +292,10 @@ public abstract class Auth {
      * @see #signIn(String, String, long)
      */
     private static void signIn(User info, boolean anonymous) {
+        boolean userChanged = false;
         synchronized (AUTH_INFO) {
             if (info != null) {
+                userChanged = isUserChanged(info.getString("user_id"));
                 AUTH_INFO.clear();
 
                 String token = info.getString(User.TOKEN);
@@ -308,14 +310,16 @@ public abstract class Auth {
 
                 try {
                     AUTH_INFO.put(EXPIRES_IN,
-                            Long.valueOf(info.getString(User.EXPIRES_IN)) * 1000 +
-                                    System.currentTimeMillis());
+                            Long.valueOf(info.getString(User.EXPIRES_IN)) * 1000 + ServerClock.now());
                 } catch (Exception ignored) {}
 
                 AUTH_INFO.put(SIGN_IN_ANONYMOUS, anonymous);
             }
             storeAuthData();
         }
+        if (userChanged) {
+            Global.clearCaches();
+        }
     }
 
     /**
@@ -326,7 +330,9 @@ public abstract class Auth {
      * @see #signIn(User)
      */
     public static void signIn(String token, String userId, long expiresIn) {
+        boolean userChanged;
         synchronized (AUTH_INFO) {
+            userChanged = isUserChanged(userId);
             AUTH_INFO.clear();
             if (token != null) {
                 AUTH_INFO.put(TOKEN, token);
@@ -335,10 +341,21 @@ public abstract class Auth {
                 AUTH_INFO.put(USER_ID, userId);
             }
             try {
-                AUTH_INFO.put(EXPIRES_IN, expiresIn * 1000 + System.currentTimeMillis());
+                AUTH_INFO.put(EXPIRES_IN, expiresIn * 1000 + ServerClock.now());
             } catch (Exception ignored) {}
             storeAuthData();
         }
+        if (userChanged) {
+            Global.clearCaches();
+        }
+    }
+
+    /**
+     * 同一个用户重新登录（比如 token 过期）时不需要清空缓存；调用时需持有 AUTH_INFO 的锁
+     */
+    private static boolean isUserChanged(@Nullable String userId) {
+        Object current = AUTH_INFO.get(USER_ID);
+        return current == null || userId == null || !current.equals(userId);
     }
 
 
@@ -9,6 +9,7 @@ import retrofit2.Callback;
 import retrofit2.Response;
 
 import java.io.IOException;
+import java.util.concurrent.Executor;
 
 
 /**
@@ -22,6 +23,12 @@ public interface CheckedCall<T> {
     Response<T> execute() throws IOException, HttpException, EmptyResponseException, SessionMissingException;
 
     void enqueue(Callback<T> callback);
+
+    /**
+     * 同 {@link #enqueue(Callback)}，但 callback 在 callbackExecutor 中执行，而不是主线程
+     */
+    void enqueue(Callback<T> callback, Executor callbackExecutor);
+
     boolean isExecuted();
     void cancel();
     boolean isCanceled();
@@ -7,6 +7,7 @@ import com.minapp.android.sdk.exception.EmptyResponseException;
 import com.minapp.android.sdk.exception.HttpException;
 import com.minapp.android.sdk.exception.SessionMissingException;
 import com.minapp.android.sdk.model.ErrorResp;
+import com.minapp.android.sdk.util.Task;
 import okhttp3.Request;
 import okhttp3.ResponseBody;
 import retrofit2.*;
@@ -63,11 +64,34 @@ public class CheckedCallAdapterFactory extends CallAdapter.Factory {
 
         @Override
         public Response execute() throws IOException, HttpException, EmptyResponseException, SessionMissingException {
-            return postProcess(realCall, realCall.execute());
+            // 在 Task 中执行时，Task 被取消则取消请求
+            Task<?> task = Task.current();
+            Runnable cancelHook = null;
+            if (task != null) {
+                cancelHook = new Runnable() {
+                    @Override
+                    public void run() {
+                        realCall.cancel();
+                    }
+                };
+                task.addCancelHook(cancelHook);
+            }
+            try {
+                return postProcess(realCall, realCall.execute());
+            } finally {
+                if (task != null) {
+                    task.removeCancelHook(cancelHook);
+                }
+            }
         }
 
         @Override
         public void enqueue(final Callback callback) {
+            enqueue(callback, this.callbackExecutor);
+        }
+
+        @Override
+        public void enqueue(final Callback callback, final Executor callbackExecutor) {
             realCall.enqueue(new Callback() {
                 @Override
                 public void onResponse(final Call call, Response response) {
@@ -0,0 +1,15 @@
+package com.minapp.android.sdk.auth;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记 {@link com.minapp.android.sdk.HttpApi} 中可以合并的 GET 接口
+ * @see SingleFlightInterceptor
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Coalesce {
+}
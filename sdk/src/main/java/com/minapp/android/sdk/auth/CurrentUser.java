@@ -14,6 +14,7 @@ import com.minapp.android.sdk.model.SmsPhoneVerificationRequest;
 import com.minapp.android.sdk.user.User;
 import com.minapp.android.sdk.util.BaseCallback;
 import com.minapp.android.sdk.util.Util;
+import com.minapp.android.sdk.util.Task;
 
 import java.io.IOException;
 import java.util.concurrent.Callable;
@@ -41,8 +42,8 @@ public class CurrentUser extends User {
     }
 
 
-    public void resetPwdInBackground(final String email, @NonNull BaseCallback<Boolean> cb) {
-        Util.inBackground(cb, new Callable<Boolean>() {
+    public Task<Boolean> resetPwdInBackground(final String email, @NonNull BaseCallback<Boolean> cb) {
+        return Util.inBackground(cb, new Callable<Boolean>() {
             @Override
             public Boolean call() throws Exception {
                 return resetPwd(email);
@@ -61,8 +62,8 @@ public class CurrentUser extends User {
         return Global.httpApi().updateUser(request).execute().body();
     }
 
-    public void updateUserInBackground(final UpdateUserReq request, @NonNull BaseCallback<UpdateUserResp> cb) {
-        Util.inBackground(cb, new Callable<UpdateUserResp>() {
+    public Task<UpdateUserResp> updateUserInBackground(final UpdateUserReq request, @NonNull BaseCallback<UpdateUserResp> cb) {
+        return Util.inBackground(cb, new Callable<UpdateUserResp>() {
             @Override
             public UpdateUserResp call() throws Exception {
                 return updateUser(request);
@@ -79,8 +80,8 @@ public class CurrentUser extends User {
         return Global.httpApi().emailVerify(new Object()).execute().body().isOk();
     }
 
-    public void emailVerifyInBackground(@NonNull BaseCallback<Boolean> cb) {
-        Util.inBackground(cb, new Callable<Boolean>() {
+    public Task<Boolean> emailVerifyInBackground(@NonNull BaseCallback<Boolean> cb) {
+        return Util.inBackground(cb, new Callable<Boolean>() {
             @Override
             public Boolean call() throws Exception {
                 return emailVerify();
@@ -110,8 +111,8 @@ public class CurrentUser extends User {
      * @param code 短信验证码
      * @see com.minapp.android.sdk.BaaS#sendSmsCode(String)
      */
-    public void smsPhoneVerificationInBackground(String code, BaseCallback<Void> cb) {
-        Util.inBackground(cb, new Callable<Void>() {
+    public Task<Void> smsPhoneVerificationInBackground(String code, BaseCallback<Void> cb) {
+        return Util.inBackground(cb, new Callable<Void>() {
             @Override
             public Void call() throws Exception {
                 smsPhoneVerification(code);
@@ -0,0 +1,128 @@
+package com.minapp.android.sdk.auth;
+
+import androidx.annotation.Nullable;
+import com.minapp.android.sdk.Config;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import retrofit2.Invocation;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 合并相同的并发 GET 请求（single-flight）：只对标记了 {@link Coalesce} 的接口生效，
+ * 并且需要通过 {@link Config#setRequestCoalescingEnabled(boolean)} 开启。
+ * method + url（包含 query）+ 当前用户都相同的请求同时进行时，只有第一个请求真正发出，其他请求等待并共享它的响应；
+ * 第一个请求失败、响应不是 2xx、没有 Content-Length 或响应体超过 {@link #MAX_SHARED_BODY} 时，其他请求各自发出。
+ * 必须作为 application interceptor 使用
+ */
+public class SingleFlightInterceptor implements Interceptor {
+
+    static final String METHOD_GET = "GET";
+    static final long MAX_SHARED_BODY = 256 * 1024;
+
+    private final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!Config.isRequestCoalescingEnabled() || !METHOD_GET.equals(request.method()) || !isCoalesced(request)) {
+            return chain.proceed(request);
+        }
+
+        String key = key(request);
+        Flight flight = new Flight();
+        Flight inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight != null) {
+            Response shared = inFlight.await();
+            return shared != null ? shared.newBuilder().request(request).build() : chain.proceed(request);
+        }
+
+        try {
+            Response response = chain.proceed(request);
+            flight.share(response);
+            return response;
+        } finally {
+            flights.remove(key, flight);
+            flight.finish();
+        }
+    }
+
+    private static boolean isCoalesced(Request request) {
+        Invocation invocation = request.tag(Invocation.class);
+        return invocation != null && invocation.method().isAnnotationPresent(Coalesce.class);
+    }
+
+    /**
+     * 不同用户的响应不能共享，所以 key 里包含当前的 token
+     */
+    private static String key(Request request) {
+        String token = Auth.token();
+        return request.method() + " " + request.url() + " " + (token != null ? token : "");
+    }
+
+
+    private static class Flight {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private final AtomicInteger followers = new AtomicInteger();
+        private volatile Response response;
+        private volatile byte[] body;
+        private volatile MediaType contentType;
+
+        /**
+         * 有其他请求在等待时，复制一份响应体给它们；原响应体不受影响，继续返回给第一个请求。
+         * 只复制声明了长度的小响应体，不会把流式的响应读入内存
+         */
+        void share(Response response) {
+            ResponseBody original = response.body();
+            if (followers.get() == 0 || original == null || !response.isSuccessful()) {
+                return;
+            }
+            long length = original.contentLength();
+            if (length < 0 || length > MAX_SHARED_BODY) {
+                return;
+            }
+            try {
+                this.body = response.peekBody(length).bytes();
+                this.contentType = original.contentType();
+                this.response = response;
+            } catch (IOException ignored) {
+                // 读取失败时其他请求各自发出
+            }
+        }
+
+        void finish() {
+            latch.countDown();
+        }
+
+        /**
+         * 阻塞等待第一个请求结束（它有自己的超时），线程被中断时抛出 {@link InterruptedIOException}
+         * @return 可以共享时返回一个新的响应（每个请求独立的响应体），否则返回 null
+         */
+        @Nullable Response await() throws IOException {
+            followers.incrementAndGet();
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+
+            Response shared = this.response;
+            byte[] bytes = this.body;
+            if (shared == null || bytes == null) {
+                return null;
+            }
+            return shared.newBuilder()
+                    .body(ResponseBody.create(contentType, bytes))
+                    .build();
+        }
+    }
+}
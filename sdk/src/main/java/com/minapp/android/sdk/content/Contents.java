@@ -6,8 +6,8 @@ import com.minapp.android.sdk.database.query.Query;
 import com.minapp.android.sdk.util.BaseCallback;
 import com.minapp.android.sdk.util.PagedList;
 import com.minapp.android.sdk.util.Util;
+import com.minapp.android.sdk.util.Task;
 
-import java.util.concurrent.Callable;
 
 public abstract class Contents {
 
@@ -24,13 +24,8 @@ public abstract class Contents {
         return Global.httpApi().contents(query).execute().body().readonly();
     }
 
-    public static void contentsInBackground(@NonNull final Query query, @NonNull BaseCallback<PagedList<Content>> cb) {
-        Util.inBackground(cb, new Callable<PagedList<Content>>() {
-            @Override
-            public PagedList<Content> call() throws Exception {
-                return Contents.contents(query);
-            }
-        });
+    public static Task<PagedList<Content>> contentsInBackground(@NonNull final Query query, @NonNull BaseCallback<PagedList<Content>> cb) {
+        return Util.enqueue(Global.httpApi().contents(query), Util.<Content>readonlyPage(), cb);
     }
 
     /**
@@ -43,13 +38,8 @@ public abstract class Contents {
         return Global.httpApi().content(id).execute().body();
     }
 
-    public static void contentInBackground(final String id, @NonNull BaseCallback<Content> cb) {
-        Util.inBackground(cb, new Callable<Content>() {
-            @Override
-            public Content call() throws Exception {
-                return Contents.content(id);
-            }
-        });
+    public static Task<Content> contentInBackground(final String id, @NonNull BaseCallback<Content> cb) {
+        return Util.enqueue(Global.httpApi().content(id), Util.<Content>identity(), cb);
     }
 
     /**
@@ -62,13 +52,8 @@ public abstract class Contents {
         return Global.httpApi().contentGroups(query).execute().body().readonly();
     }
 
-    public static void contentGroupsInBackground(@NonNull final Query query, @NonNull BaseCallback<PagedList<ContentGroup>> cb) {
-        Util.inBackground(cb, new Callable<PagedList<ContentGroup>>() {
-            @Override
-            public PagedList<ContentGroup> call() throws Exception {
-                return Contents.contentGroups(query);
-            }
-        });
+    public static Task<PagedList<ContentGroup>> contentGroupsInBackground(@NonNull final Query query, @NonNull BaseCallback<PagedList<ContentGroup>> cb) {
+        return Util.enqueue(Global.httpApi().contentGroups(query), Util.<ContentGroup>readonlyPage(), cb);
     }
 
     /**
@@ -81,13 +66,8 @@ public abstract class Contents {
         return Global.httpApi().contentCategories(query).execute().body().readonly();
     }
 
-    public static void contentCategoriesInBackground(@NonNull final Query query, @NonNull BaseCallback<PagedList<ContentCategory>> cb) {
-        Util.inBackground(cb, new Callable<PagedList<ContentCategory>>() {
-            @Override
-            public PagedList<ContentCategory> call() throws Exception {
-                return Contents.contentCategories(query);
-            }
-        });
+    public static Task<PagedList<ContentCategory>> contentCategoriesInBackground(@NonNull final Query query, @NonNull BaseCallback<PagedList<ContentCategory>> cb) {
+        return Util.enqueue(Global.httpApi().contentCategories(query), Util.<ContentCategory>readonlyPage(), cb);
     }
 
     /**
@@ -100,12 +80,7 @@ public abstract class Contents {
         return Global.httpApi().contentCategory(id).execute().body();
     }
 
-    public static void contentCategoryInBackground(final String id, @NonNull BaseCallback<ContentCategory> cb) {
-        Util.inBackground(cb, new Callable<ContentCategory>() {
-            @Override
-            public ContentCategory call() throws Exception {
-                return Contents.contentCategory(id);
-            }
-        });
+    public static Task<ContentCategory> contentCategoryInBackground(final String id, @NonNull BaseCallback<ContentCategory> cb) {
+        return Util.enqueue(Global.httpApi().contentCategory(id), Util.<ContentCategory>identity(), cb);
     }
 }
@@ -0,0 +1,33 @@
+package com.minapp.android.sdk.database;
+
+/**
+ * 批量操作的配置
+ * @see Table#batchSave(java.util.List, com.minapp.android.sdk.database.query.Query, BatchOptions)
+ * @see Table#batchDelete(com.minapp.android.sdk.database.query.Query, BatchOptions)
+ * @see Table#batchUpdate(com.minapp.android.sdk.database.query.Query, Record, BatchOptions)
+ */
+public class BatchOptions {
+
+    /**
+     * 每个请求最多保存的记录数，超出后拆分为多个请求；
+     * 不要超过服务端同步处理的上限，否则该请求会变成异步操作，拿不到记录的 id
+     */
+    public int chunkSize = 500;
+
+    /**
+     * 同时发出的请求数
+     */
+    public int parallelism = 2;
+
+    /**
+     * 批量删除、批量更新超过服务端的单次上限时，是否继续请求 {@link BatchResult#getNext()} 直到全部完成；
+     * 批量删除时重复原来的 query（已删除的记录不再匹配）；后一次请求依赖前一次的结果，所以是串行的
+     */
+    public boolean followNext = false;
+
+    /**
+     * followNext 时每完成一次请求回调一次，可以为 null
+     */
+    public BatchProgressListener progressListener;
+
+}
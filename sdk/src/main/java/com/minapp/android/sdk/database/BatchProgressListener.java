@@ -0,0 +1,15 @@
+package com.minapp.android.sdk.database;
+
+/**
+ * 批量删除、批量更新的进度，在执行请求的后台线程中回调
+ * @see BatchOptions#progressListener
+ */
+public interface BatchProgressListener {
+
+    /**
+     * @param succeed 已经删除、更新的记录数
+     * @param totalCount 总的待删除、待更新记录数
+     */
+    void onProgress(long succeed, long totalCount);
+
+}
@@ -90,6 +90,14 @@ public class BatchResult {
         this.operationId = operationId;
     }
 
+    /**
+     * 超过批量操作的限制时，服务端会转为异步操作，只返回 {@link #getOperationId()}
+     * @see com.minapp.android.sdk.BaaS#awaitBatchOperation(BatchResult)
+     */
+    public boolean isAsync() {
+        return status != null && operationId > 0;
+    }
+
     public static class OperationResult {
         /**
          * success : {"id":"5bfe000ce74243582bf2979f","created_at":"1543459089"}
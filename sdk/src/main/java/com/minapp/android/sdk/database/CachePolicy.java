@@ -0,0 +1,23 @@
+package com.minapp.android.sdk.database;
+
+/**
+ * 读取数据时，如何使用本地缓存（{@link RecordStore}）
+ */
+public enum CachePolicy {
+
+    /**
+     * 总是从网络读取，不读取内存缓存（{@link RecordCache}），读取的结果会写入本地缓存
+     */
+    NETWORK_ONLY,
+
+    /**
+     * 优先读取本地缓存，缓存中没有时再从网络读取
+     */
+    CACHE_FIRST,
+
+    /**
+     * 先返回本地缓存（如果有），再从网络读取并返回最新的结果，适合列表页在冷启动时立即展示数据；
+     * 在 *InBackground 方法中 callback 可能会被回调两次，同步方法则只返回网络的结果
+     */
+    CACHE_THEN_NETWORK
+}
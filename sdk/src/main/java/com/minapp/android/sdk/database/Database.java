@@ -1,17 +1,37 @@
 package com.minapp.android.sdk.database;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import com.google.gson.JsonObject;
+import com.minapp.android.sdk.BaaS;
 import com.minapp.android.sdk.Global;
+import com.minapp.android.sdk.auth.CheckedCall;
+import com.minapp.android.sdk.model.BatchOperationResp;
+import com.minapp.android.sdk.typeadapter.RecordPageReader;
 import com.minapp.android.sdk.util.Action;
 import com.minapp.android.sdk.util.PagedList;
 import com.minapp.android.sdk.util.PagedListResponse;
 import com.minapp.android.sdk.database.query.*;
 import com.minapp.android.sdk.util.Util;
+import com.minapp.android.sdk.util.BaseCallback;
+import com.minapp.android.sdk.util.ResponseHandler;
+import com.minapp.android.sdk.util.Task;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
 
 public abstract class Database {
 
@@ -23,14 +43,201 @@ public abstract class Database {
      * @throws Exception
      */
     static BatchResult batchSave(Table table, List<Record> records, Query query) throws Exception {
-        BatchResult result =  Global.httpApi().batchSaveRecord(table.getTableName(), records, query).execute().body();
-        for (int i = 0; i < result.getOperationResult().size(); i++) {
-            BatchResult.OperationResult.Success success = result.getOperationResult().get(i).getSuccess();
+        return batchSave(table, records, query, null);
+    }
+
+    /**
+     * 批量保存，记录数超过 {@link BatchOptions#chunkSize} 时拆分为多个请求，最多同时发出 {@link BatchOptions#parallelism} 个；
+     * 每个请求返回的 id 按顺序写回 records，结果合并为一个 {@link BatchResult}；
+     * 拆分后某个请求转为异步操作时，会等待该操作结束（它的记录没有 operation_result），合并后的结果不是异步的。
+     * 任何一个请求失败时，取消其他请求并抛出异常，已经完成的请求不会回滚
+     * @param options 为 null 时使用默认配置
+     */
+    static BatchResult batchSave(Table table, List<Record> records, Query query, @Nullable BatchOptions options) throws Exception {
+        if (options == null) {
+            options = new BatchOptions();
+        }
+        int chunkSize = Math.max(1, options.chunkSize);
+        try {
+            if (records == null || records.size() <= chunkSize) {
+                return batchSaveChunk(table, records, query);
+            }
+
+            List<List<Record>> chunks = new ArrayList<>();
+            for (int i = 0; i < records.size(); i += chunkSize) {
+                chunks.add(records.subList(i, Math.min(i + chunkSize, records.size())));
+            }
+            return mergeBatchResults(batchSaveChunks(table, chunks, query, options.parallelism));
+        } finally {
+            invalidate(table);
+        }
+    }
+
+    /**
+     * 分块通过 enqueue 发起，由 OkHttp 的 Dispatcher 执行，不占用 sdk 的线程池
+     * （batchSaveInBackground 已经在 {@link com.minapp.android.sdk.util.Lane#BULK} 中，再向同一个通道提交并等待会占满它的线程）；
+     * 一个分块结束后再发出下一个，同时最多 parallelism 个
+     */
+    private static List<BatchResult> batchSaveChunks(
+            final Table table, final List<List<Record>> chunks, final Query query, int parallelism) throws Exception {
+        final List<Task<BatchResult>> tasks = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            tasks.add(new Task<BatchResult>());
+        }
+        final AtomicInteger next = new AtomicInteger(0);
+        Runnable startNext = new Runnable() {
+            @Override
+            public void run() {
+                int i = next.getAndIncrement();
+                if (i < chunks.size()) {
+                    batchSaveChunk(table, chunks.get(i), query, tasks.get(i), this);
+                }
+            }
+        };
+
+        Task<List<BatchResult>> all = Task.all(tasks);
+        Runnable cancelHook = new Runnable() {
+            @Override
+            public void run() {
+                cancelAll(tasks);
+            }
+        };
+        Task<?> current = Task.current();
+        if (current != null) {
+            current.addCancelHook(cancelHook);
+        }
+        try {
+            for (int i = 0; i < Math.max(1, parallelism); i++) {
+                startNext.run();
+            }
+            return all.get();
+        } catch (InterruptedException e) {
+            cancelAll(tasks);
+            throw e;
+        } catch (ExecutionException e) {
+            cancelAll(tasks);
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } finally {
+            if (current != null) {
+                current.removeCancelHook(cancelHook);
+            }
+        }
+    }
+
+    private static void cancelAll(List<? extends Task<?>> tasks) {
+        for (Task<?> task : tasks) {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * 保存一个分块，结束（包括失败和取消）后执行 onDone；
+     * 转为异步操作时等待它结束，否则合并后的结果里无法再拿到它的 operation_id
+     */
+    private static void batchSaveChunk(
+            Table table, final List<Record> records, Query query, final Task<BatchResult> task, final Runnable onDone) {
+        task.addListener(new Task.Listener<BatchResult>() {
+            @Override
+            public void onDone(@NonNull Task<BatchResult> t) {
+                onDone.run();
+            }
+        });
+        if (task.isDone()) {
+            return;
+        }
+
+        final CheckedCall<BatchResult> call = Global.httpApi().batchSaveRecord(table.getTableName(), records, query);
+        task.addCancelHook(new Runnable() {
+            @Override
+            public void run() {
+                call.cancel();
+            }
+        });
+        call.enqueue(new Callback<BatchResult>() {
+            @Override
+            public void onResponse(Call<BatchResult> c, Response<BatchResult> response) {
+                final BatchResult result = response.body();
+                try {
+                    writeBackIds(records, result);
+                } catch (Throwable e) {
+                    task.completeExceptionally(e);
+                    return;
+                }
+                if (!result.isAsync()) {
+                    task.complete(result);
+                    return;
+                }
+
+                final Task<BatchOperationResp> operation = BaaS._awaitBatchOperation(result.getOperationId());
+                task.addCancelHook(new Runnable() {
+                    @Override
+                    public void run() {
+                        operation.cancel(true);
+                    }
+                });
+                operation.addListener(new Task.Listener<BatchOperationResp>() {
+                    @Override
+                    public void onDone(@NonNull Task<BatchOperationResp> t) {
+                        if (!t.isSuccessful()) {
+                            task.completeExceptionally(t.getError() != null ? t.getError() : new CancellationException());
+                        } else if (!BatchOperationResp.STATUS_SUCCESS.equals(t.getResult().getStatus())) {
+                            task.completeExceptionally(new IllegalStateException(
+                                    "batch operation " + result.getOperationId() + " " + t.getResult().getStatus()));
+                        } else {
+                            result.setStatus(null);
+                            result.setOperationId(0);
+                            task.complete(result);
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(Call<BatchResult> c, Throwable t) {
+                task.completeExceptionally(t);
+            }
+        }, Util.directExecutor());
+    }
+
+    /**
+     * 保存一批记录，并把 id 写回 records（异步操作没有 {@link BatchResult#getOperationResult()}）
+     */
+    private static BatchResult batchSaveChunk(Table table, List<Record> records, Query query) throws Exception {
+        BatchResult result = Global.httpApi().batchSaveRecord(table.getTableName(), records, query).execute().body();
+        writeBackIds(records, result);
+        return result;
+    }
+
+    private static void writeBackIds(List<Record> records, BatchResult result) {
+        List<BatchResult.OperationResult> operations = result.getOperationResult();
+        for (int i = 0; operations != null && i < operations.size(); i++) {
+            BatchResult.OperationResult.Success success = operations.get(i).getSuccess();
             if (success != null) {
                 records.get(i).put(Record.ID, success.getId());
             }
         }
-        return result;
+    }
+
+    /**
+     * 按顺序合并 operation_result，累加 succeed 和 total_count
+     */
+    private static BatchResult mergeBatchResults(List<BatchResult> results) {
+        BatchResult merged = new BatchResult();
+        List<BatchResult.OperationResult> operations = new ArrayList<>();
+        long succeed = 0;
+        long totalCount = 0;
+        for (BatchResult result : results) {
+            if (result.getOperationResult() != null) {
+                operations.addAll(result.getOperationResult());
+            }
+            succeed += result.getSucceed() != null ? result.getSucceed() : 0;
+            totalCount += result.getTotalCount() != null ? result.getTotalCount() : 0;
+        }
+        merged.setOperationResult(operations);
+        merged.setSucceed(succeed);
+        merged.setTotalCount(totalCount);
+        return merged;
     }
 
     /**
@@ -48,15 +255,16 @@ public abstract class Database {
     static void save(Record record, SaveOptions options) throws Exception {
         if (record != null && record.getTableName() != null) {
 
-            // 这里要处理下 pointer 类型
-            Record clone = record._deepClone();
-            JsonObject json = clone._getJson();
-            for (String field : json.keySet()) {
-                String id = Util.getPointerId(json.get(field));
-                if (id != null) {
-                    json.addProperty(field, id);
-                }
+            // 新增时提交所有字段，更新时只提交修改过的字段（不一定包含 id，所以 id 取自 record）
+            JsonObject body;
+            if (record.getId() == null) {
+                body = record._requestBody(false);
+            } else if (options != null && Boolean.TRUE.equals(options.partialUpdate)) {
+                body = record._partialBody();
+            } else {
+                body = record._requestBody(true);
             }
+            Record clone = new Record(record._getTable(), body);
 
             // 新增
             Map<String, Object> query = new HashMap<>();
@@ -67,6 +275,7 @@ public abstract class Database {
                 Record response = Global.httpApi()
                         .saveRecord(clone.getTableName(), clone, query).execute().body();
                 record._setJson(response._getJson());
+                writeThrough(record, query);
             } else {
 
                 // 更新
@@ -81,12 +290,26 @@ public abstract class Database {
                                 options.withCount ? Query.ENABLE_TOTAL_COUNT : Query.DISABLE_TOTAL_COUNT);
                 }
                 Record response = Global.httpApi()
-                        .updateRecord(clone.getTableName(), clone.getId(), clone, query).execute().body();
+                        .updateRecord(clone.getTableName(), record.getId(), clone, query).execute().body();
                 record._setJson(response._getJson());
+                writeThrough(record, query);
             }
         }
     }
 
+    /**
+     * 以 body 更新一条记录，用于 {@link WriteBehindQueue} 合并后的写入
+     * @return 更新后的记录
+     */
+    static Record update(Table table, String id, JsonObject body) throws Exception {
+        Map<String, Object> query = new HashMap<>();
+        Record response = Global.httpApi()
+                .updateRecord(table.getTableName(), id, new Record(table, body), query).execute().body();
+        response._setTable(table);
+        writeThrough(response, query);
+        return response;
+    }
+
     /**
      * 删除
      * @param record
@@ -94,8 +317,19 @@ public abstract class Database {
      */
     static void delete(Record record) throws Exception {
         if (record != null && record.getId() != null) {
-            Global.httpApi().deleteRecord(record.getTableName(), record.getId()).execute();
+            String id = record.getId();
+            Global.httpApi().deleteRecord(record.getTableName(), id).execute();
             record._setJson(null);
+
+            RecordCache cache = Global.recordCache();
+            if (cache != null && record.getTableName() != null) {
+                cache.remove(record.getTableName(), id);
+            }
+            RecordStore store = Global.recordStore();
+            if (store != null && record.getTableName() != null) {
+                store.removeRecord(record.getTableName(), id);
+                store.removeQueryResults(record.getTableName());
+            }
         }
     }
 
@@ -105,15 +339,117 @@ public abstract class Database {
      * @throws Exception
      */
     static @NonNull Record fetch(@NonNull Table table, String recordId, Query query) throws Exception {
+        return fetch(table, recordId, query, null);
+    }
+
+    /**
+     * 获取数据
+     * @param policy 只有不带 expand 和 keys 的查询才会读取本地缓存；
+     *               为 null 时先读取内存缓存（{@link RecordCache}），再从网络读取
+     * @return
+     * @throws Exception
+     */
+    static @NonNull Record fetch(@NonNull Table table, String recordId, Query query, @Nullable CachePolicy policy) throws Exception {
         Util.assetNotNull(table);
+        if (policy == null) {
+            Record cached = fetchFromMemory(table, recordId, query);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        if (policy == CachePolicy.CACHE_FIRST) {
+            Record cached = fetchFromCache(table, recordId, query);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
         Record response = Global.httpApi().fetchRecord(
                 table.getTableName(),
                 recordId, query != null ? query : new Query()
         ).execute().body();
+        return onFetched(table, query, response);
+    }
+
+    /**
+     * 异步获取数据，由 OkHttp 的 Dispatcher 调度
+     * @param policy 只支持 null（先读取内存缓存）和 {@link CachePolicy#NETWORK_ONLY}
+     */
+    static Task<Record> fetchInBackground(@NonNull final Table table, String recordId, final Query query,
+                                          @Nullable CachePolicy policy, @NonNull BaseCallback<Record> cb) {
+        Util.assetNotNull(table);
+        if (policy == null) {
+            Record cached = fetchFromMemory(table, recordId, query);
+            if (cached != null) {
+                return Util.completed(cached, cb);
+            }
+        }
+        return Util.enqueue(Global.httpApi().fetchRecord(
+                table.getTableName(),
+                recordId, query != null ? query : new Query()
+        ), new ResponseHandler<Record, Record>() {
+            @Override
+            public Record handle(Record body) {
+                return onFetched(table, query, body);
+            }
+        }, cb);
+    }
+
+    private static Record onFetched(Table table, Query query, Record response) {
         response._setTable(table);
+
+        if (isCompleteRecord(query)) {
+            RecordCache cache = Global.recordCache();
+            if (cache != null) {
+                cache.put(table.getTableName(), response);
+            }
+            RecordStore store = Global.recordStore();
+            if (store != null) {
+                store.putRecord(table.getTableName(), response);
+            }
+        }
         return response;
     }
 
+    /**
+     * 从内存缓存中读取
+     * @return 缓存中没有时返回 null
+     */
+    private static @Nullable Record fetchFromMemory(@NonNull Table table, String recordId, Query query) {
+        RecordCache cache = Global.recordCache();
+        if (cache == null || recordId == null || !isCompleteRecord(query)) {
+            return null;
+        }
+        JsonObject json = cache.get(table.getTableName(), recordId);
+        return json != null ? cachedRecord(table, json) : null;
+    }
+
+    /**
+     * 缓存中的数据和服务端一致，没有修改过的字段
+     */
+    private static Record cachedRecord(Table table, JsonObject json) {
+        Record record = new Record(table);
+        record._setJson(json);
+        return record;
+    }
+
+    /**
+     * 从本地缓存中读取，先读取内存缓存，再读取 {@link RecordStore}
+     * @return 缓存中没有时返回 null
+     */
+    static @Nullable Record fetchFromCache(@NonNull Table table, String recordId, Query query) {
+        Record cached = fetchFromMemory(table, recordId, query);
+        if (cached != null) {
+            return cached;
+        }
+        RecordStore store = Global.recordStore();
+        if (store == null || recordId == null || !isCompleteRecord(query)) {
+            return null;
+        }
+        JsonObject json = store.getRecord(table.getTableName(), recordId);
+        return json != null ? cachedRecord(table, json) : null;
+    }
+
 
     /**
      * 查询
@@ -123,20 +459,211 @@ public abstract class Database {
      * @throws Exception
      */
     static PagedList<Record> query(final Table table, Query query) throws Exception {
+        return query(table, query, CachePolicy.NETWORK_ONLY);
+    }
+
+    /**
+     * 查询
+     * @param table
+     * @param query
+     * @param policy
+     * @return
+     * @throws Exception
+     */
+    static PagedList<Record> query(final Table table, Query query, CachePolicy policy) throws Exception {
         if (table != null) {
-            PagedListResponse<Record> body = Global.httpApi().queryRecord(
+            if (policy == CachePolicy.CACHE_FIRST) {
+                PagedList<Record> cached = queryFromCache(table, query);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+
+            PagedListResponse<Record> body;
+            Set<String> projection = RecordPageReader.projection(query);
+            if (projection != null) {
+
+                // 指定了 keys 时，以流的方式解析并丢弃多余的字段
+                ResponseBody raw = Global.httpApi().queryRecordStream(
+                        table.getTableName(),
+                        query
+                ).execute().body();
+                try {
+                    body = RecordPageReader.read(raw.charStream(), projection);
+                } finally {
+                    Util.closeQuietly(raw);
+                }
+            } else {
+                body = Global.httpApi().queryRecord(
+                        table.getTableName(),
+                        query != null ? query : new Query()
+                ).execute().body();
+            }
+            return onQueried(table, query, body);
+        }
+        return new PagedList<>(null);
+    }
+
+    /**
+     * 异步查询，由 OkHttp 的 Dispatcher 调度，等同于 {@link CachePolicy#NETWORK_ONLY}
+     */
+    static Task<PagedList<Record>> queryInBackground(
+            @NonNull final Table table, final Query query, @NonNull BaseCallback<PagedList<Record>> cb) {
+        Util.assetNotNull(table);
+        final Set<String> projection = RecordPageReader.projection(query);
+        if (projection != null) {
+            return Util.enqueue(Global.httpApi().queryRecordStream(
                     table.getTableName(),
-                    query != null ? query : new Query()
-            ).execute().body();
-            Util.each(body.getObjects(), new Action<Record>() {
+                    query
+            ), new ResponseHandler<ResponseBody, PagedList<Record>>() {
                 @Override
-                public void on(Record record) {
-                    record._setTable(table);
+                public PagedList<Record> handle(ResponseBody raw) throws Exception {
+                    try {
+                        return onQueried(table, query, RecordPageReader.read(raw.charStream(), projection));
+                    } finally {
+                        Util.closeQuietly(raw);
+                    }
                 }
-            });
-            return body.readonly();
+            }, cb);
         }
-        return new PagedList<>(null);
+
+        return Util.enqueue(Global.httpApi().queryRecord(
+                table.getTableName(),
+                query != null ? query : new Query()
+        ), new ResponseHandler<PagedListResponse<Record>, PagedList<Record>>() {
+            @Override
+            public PagedList<Record> handle(PagedListResponse<Record> body) {
+                return onQueried(table, query, body);
+            }
+        }, cb);
+    }
+
+    private static PagedList<Record> onQueried(Table table, Query query, PagedListResponse<Record> body) {
+        setTable(table, body);
+
+        RecordCache cache = Global.recordCache();
+        if (cache != null && isCompleteRecord(query)) {
+            cache.putAll(table.getTableName(), body.getObjects());
+        }
+
+        RecordStore store = Global.recordStore();
+        if (store != null) {
+            store.putQueryResult(table.getTableName(), query, body);
+            if (isCompleteRecord(query)) {
+                store.putRecords(table.getTableName(), body.getObjects());
+            }
+        }
+        return body.readonly();
+    }
+
+    /**
+     * 从本地缓存中读取查询结果
+     * @return 缓存中没有时返回 null
+     */
+    static @Nullable PagedList<Record> queryFromCache(final Table table, Query query) {
+        RecordStore store = Global.recordStore();
+        if (table == null || store == null) {
+            return null;
+        }
+        PagedListResponse<Record> cached = store.getQueryResult(table.getTableName(), query);
+        if (cached == null) {
+            return null;
+        }
+        setTable(table, cached);
+        return cached.readonly();
+    }
+
+    /**
+     * 服务端计数：只请求一条记录（limit=1，只返回 id），从 meta.total_count 中读取总数
+     * @param table
+     * @param query 其中的 limit, offset, order_by, expand, keys 会被忽略
+     * @return
+     * @throws Exception
+     */
+    static int count(Table table, Query query) throws Exception {
+        PagedListResponse<Record> body = Global.httpApi().queryRecord(
+                table.getTableName(), countQuery(query)).execute().body();
+        return totalCount(body);
+    }
+
+    /**
+     * 并发地对多个查询条件计数，不占用 sdk 的线程池；
+     * 回调在 OkHttp 的线程里执行，不经过主线程，所以在主线程调用也不会死锁（但仍然会阻塞主线程）
+     * @param table
+     * @param wheres
+     * @return 与 wheres 的顺序一致
+     * @throws Exception 任何一个计数失败都会抛出异常
+     */
+    static List<Integer> count(Table table, List<Where> wheres) throws Exception {
+        final int size = wheres != null ? wheres.size() : 0;
+        final Integer[] counts = new Integer[size];
+        final Throwable[] error = new Throwable[1];
+        final CountDownLatch latch = new CountDownLatch(size);
+        List<CheckedCall<PagedListResponse<Record>>> calls = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            final int index = i;
+            Query query = countQuery(null);
+            if (wheres.get(i) != null) {
+                query.put(wheres.get(i));
+            }
+            CheckedCall<PagedListResponse<Record>> call = Global.httpApi().queryRecord(table.getTableName(), query);
+            calls.add(call);
+            call.enqueue(new Callback<PagedListResponse<Record>>() {
+                @Override
+                public void onResponse(Call<PagedListResponse<Record>> call, Response<PagedListResponse<Record>> response) {
+                    counts[index] = totalCount(response.body());
+                    latch.countDown();
+                }
+
+                @Override
+                public void onFailure(Call<PagedListResponse<Record>> call, Throwable t) {
+                    synchronized (error) {
+                        if (error[0] == null) {
+                            error[0] = t;
+                        }
+                    }
+                    latch.countDown();
+                }
+            }, Util.directExecutor());
+        }
+
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            for (CheckedCall call : calls) {
+                call.cancel();
+            }
+            throw e;
+        }
+
+        synchronized (error) {
+            if (error[0] instanceof Exception) {
+                throw (Exception) error[0];
+            } else if (error[0] != null) {
+                throw new Exception(error[0]);
+            }
+        }
+        return Arrays.asList(counts);
+    }
+
+    private static Query countQuery(@Nullable Query query) {
+        Query countQuery = new Query();
+        if (query != null) {
+            countQuery.putAll(query);
+        }
+        countQuery.remove(Query.OFFSET);
+        countQuery.remove(Query.ORDER_BY);
+        countQuery.remove(Query.EXPAND);
+        countQuery.put(Query.KEYS, Record.ID);
+        countQuery.limit(1);
+        countQuery.returnTotalCount(true);
+        return countQuery;
+    }
+
+    private static int totalCount(@Nullable PagedListResponse<Record> body) {
+        Long total = body != null && body.getMeta() != null ? body.getMeta().getTotalCount() : null;
+        return total != null ? total.intValue() : 0;
     }
 
     /**
@@ -147,10 +674,21 @@ public abstract class Database {
      * @throws Exception
      */
     static BatchResult batchDelete(Table table, Query query) throws Exception {
-        return Global.httpApi().batchDelete(
-                table.getTableName(),
-                query != null ? query : new Query()
-        ).execute().body();
+        return batchDelete(table, query, null);
+    }
+
+    /**
+     * 批量删除，{@link BatchOptions#followNext} 时继续删除直到全部完成
+     * @param options 为 null 时使用默认配置
+     */
+    static BatchResult batchDelete(Table table, Query query, @Nullable BatchOptions options) throws Exception {
+        try {
+            Query q = query != null ? query : new Query();
+            BatchResult result = Global.httpApi().batchDelete(table.getTableName(), q).execute().body();
+            return followNext(result, options, table, q, null);
+        } finally {
+            invalidateAll(table);
+        }
     }
 
     /**
@@ -162,7 +700,119 @@ public abstract class Database {
      * @throws Exception
      */
     static BatchResult batchUpdate(Table table, Query query, Record update) throws Exception {
-        return Global.httpApi().batchUpdate(table.getTableName(), query, update).execute().body();
+        return batchUpdate(table, query, update, null);
+    }
+
+    /**
+     * 批量更新，{@link BatchOptions#followNext} 时继续更新直到全部完成
+     * @param options 为 null 时使用默认配置
+     */
+    static BatchResult batchUpdate(Table table, Query query, Record update, @Nullable BatchOptions options) throws Exception {
+        try {
+            BatchResult result = Global.httpApi().batchUpdate(table.getTableName(), query, update).execute().body();
+            return followNext(result, options, table, query, update);
+        } finally {
+            invalidateAll(table);
+        }
+    }
+
+    /**
+     * 串行请求剩余的部分直到没有 next、全部完成或者某一次没有进展（避免死循环），succeed 累加到第一次的结果上；
+     * 批量更新请求 next，批量删除则重复原来的 query：已删除的记录不再匹配，按 next 的 offset 会跳过剩下的记录
+     * @param update 为 null 时是批量删除
+     */
+    private static BatchResult followNext(BatchResult result, @Nullable BatchOptions options,
+            Table table, Query query, @Nullable Record update) throws Exception {
+        if (options == null || !options.followNext) {
+            return result;
+        }
+        long succeed = result.getSucceed() != null ? result.getSucceed() : 0;
+        long totalCount = result.getTotalCount() != null ? result.getTotalCount() : 0;
+        BatchResult last = result;
+        reportBatchProgress(options, succeed, totalCount);
+        while (!last.isAsync() && !Util.isNullOrEmpty(last.getNext()) && succeed < totalCount) {
+            last = update != null
+                    ? Global.httpApi().batchUpdateNext(last.getNext(), update).execute().body()
+                    : Global.httpApi().batchDelete(table.getTableName(), query).execute().body();
+            long step = last.getSucceed() != null ? last.getSucceed() : 0;
+            if (step <= 0) {
+                break;
+            }
+            succeed += step;
+            reportBatchProgress(options, succeed, totalCount);
+        }
+        result.setSucceed(succeed);
+        result.setNext(last.getNext());
+        return result;
+    }
+
+    private static void reportBatchProgress(BatchOptions options, long succeed, long totalCount) {
+        if (options.progressListener != null) {
+            options.progressListener.onProgress(succeed, totalCount);
+        }
+    }
+
+
+    /*************************** local cache ***********************************/
+
+
+    private static void setTable(final Table table, PagedListResponse<Record> page) {
+        Util.each(page.getObjects(), new Action<Record>() {
+            @Override
+            public void on(Record record) {
+                record._setTable(table);
+            }
+        });
+    }
+
+    /**
+     * 带 keys 或 expand 的结果不是一条完整的记录，不能作为记录缓存
+     */
+    private static boolean isCompleteRecord(@Nullable Map<String, ?> query) {
+        return query == null || (!query.containsKey(Query.KEYS) && !query.containsKey(Query.EXPAND));
+    }
+
+    /**
+     * 保存后把最新的记录写入内存缓存和本地缓存，同时作废这张表的查询结果
+     */
+    private static void writeThrough(Record record, Map<String, Object> query) {
+        String tableName = record.getTableName();
+        RecordCache cache = Global.recordCache();
+        if (cache != null && tableName != null) {
+            if (isCompleteRecord(query)) {
+                cache.put(tableName, record);
+            } else if (record.getId() != null) {
+                cache.remove(tableName, record.getId());
+            }
+        }
+
+        RecordStore store = Global.recordStore();
+        if (store != null && tableName != null) {
+            if (isCompleteRecord(query)) {
+                store.putRecord(tableName, record);
+            } else if (record.getId() != null) {
+                store.removeRecord(tableName, record.getId());
+            }
+            store.removeQueryResults(tableName);
+        }
+    }
+
+    private static void invalidate(Table table) {
+        RecordStore store = Global.recordStore();
+        if (store != null && table != null) {
+            store.removeQueryResults(table.getTableName());
+        }
+    }
+
+    private static void invalidateAll(Table table) {
+        RecordCache cache = Global.recordCache();
+        if (cache != null && table != null) {
+            cache.removeTable(table.getTableName());
+        }
+        RecordStore store = Global.recordStore();
+        if (store != null && table != null) {
+            store.removeTable(table.getTableName());
+        }
     }
 
 }
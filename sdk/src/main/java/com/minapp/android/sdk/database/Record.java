@@ -12,6 +12,7 @@ import com.minapp.android.sdk.storage.CloudFile;
 import com.minapp.android.sdk.util.Function;
 import com.minapp.android.sdk.util.Util;
 import com.minapp.android.sdk.util.BaseCallback;
+import com.minapp.android.sdk.util.Task;
 
 import java.lang.reflect.Type;
 import java.util.*;
@@ -42,6 +43,23 @@ public class Record {
     private @Nullable Table table;
     private @NonNull JsonObject json;
 
+    /**
+     * 从服务端拿到数据之后修改过的字段，更新时只提交这些字段
+     */
+    private @NonNull Set<String> dirtyKeys = new LinkedHashSet<>();
+
+    /**
+     * 修改过的字段在第一次修改前的值（不存在时为 null），用于计算部分更新，见 {@link #_partialBody()}
+     */
+    private @NonNull Map<String, JsonElement> originals = new HashMap<>();
+
+    /**
+     * getObject、getArray 等转换后的结果，field -> (类型 -> 结果)，字段被修改或者 {@link #_getJson()} 时清除；
+     * 避免列表滚动时反复用 Gson 解析日期、GeoPoint 等；只缓存能安全返回给调用方的结果，见 {@link #copyOf(Object)}
+     */
+    private @Nullable Map<String, Map<Object, Object>> typedCache;
+    private static final Object NULL = new Object();
+
 
     public Record(Table table) {
         this(table, null);
@@ -51,12 +69,20 @@ public class Record {
         this(null, null);
     }
 
+    /**
+     * json 中的字段都视为修改过的字段，有 id 时 save 会提交所有字段；
+     * 服务端返回的数据请使用 {@link #_setJson(JsonObject)}
+     */
     public Record(Table table, JsonObject json) {
         this.table = table;
         this.json = json;
         if (this.json == null) {
             this.json = new JsonObject();
         }
+        for (String key : this.json.keySet()) {
+            dirtyKeys.add(key);
+            originals.put(key, null);
+        }
     }
 
     @Override
@@ -95,8 +121,8 @@ public class Record {
     }
 
 
-    public void updateInBackground(SaveOptions options, @NonNull final BaseCallback<Record> callback) {
-        Util.inBackground(callback, new Callable<Record>() {
+    public Task<Record> updateInBackground(SaveOptions options, @NonNull final BaseCallback<Record> callback) {
+        return Util.inBackground(callback, new Callable<Record>() {
             @Override
             public Record call() throws Exception {
                 update(options);
@@ -115,12 +141,12 @@ public class Record {
         return this;
     }
 
-    public void saveInBackground(@NonNull final BaseCallback<Record> callback) {
-        saveInBackground(null, callback);
+    public Task<Record> saveInBackground(@NonNull final BaseCallback<Record> callback) {
+        return saveInBackground(null, callback);
     }
 
-    public void saveInBackground(SaveOptions options, @NonNull final BaseCallback<Record> callback) {
-        Util.inBackground(callback, new Callable<Record>() {
+    public Task<Record> saveInBackground(SaveOptions options, @NonNull final BaseCallback<Record> callback) {
+        return Util.inBackground(callback, new Callable<Record>() {
             @Override
             public Record call() throws Exception {
                 save(options);
@@ -129,12 +155,26 @@ public class Record {
         });
     }
 
+    /**
+     * 延迟写入：修改放入队列，{@link com.minapp.android.sdk.Config#getWriteBehindWindow()} 内对同一条记录的多次修改
+     * （比如连续多次 {@link #incrementBy(String, int)}）合并为一次更新，适合频繁修改同一条记录的场景；
+     * 原子操作放入队列后会从当前对象中去掉，写入成功后在主线程把字段更新为服务端返回的值（之后又修改过的字段保留本地的值），
+     * 所以 saveLater 的记录应该只在主线程修改
+     * @param callback 包含这次修改的写入结束后回调
+     * @see WriteBehindQueue
+     */
+    public Task<Record> saveLater(@NonNull BaseCallback<Record> callback) {
+        if (Util.isNullOrEmpty(getId()))
+            throw new IllegalStateException("ID can not be empty in saveLater");
+        return Util.deliver(Global.writeBehindQueue().enqueue(this), callback);
+    }
+
     public void delete() throws Exception {
         Database.delete(this);
     }
 
-    public void deleteInBackground(@NonNull final BaseCallback<Record> callback) {
-        Util.inBackground(callback, new Callable<Record>() {
+    public Task<Record> deleteInBackground(@NonNull final BaseCallback<Record> callback) {
+        return Util.inBackground(callback, new Callable<Record>() {
             @Override
             public Record call() throws Exception {
                 delete();
@@ -147,16 +187,116 @@ public class Record {
     /*************************** private method ***********************************/
 
 
+    /**
+     * 调用方可能直接修改返回的 json，所以会清空 getObject 等的缓存
+     */
     public JsonObject _getJson() {
+        typedCache = null;
         return json;
     }
 
 
+    /**
+     * json 作为服务端的最新数据，清空修改记录
+     */
     public void _setJson(JsonObject json) {
         if (json == null) {
             json = new JsonObject();
         }
         this.json = json;
+        this.dirtyKeys.clear();
+        this.originals.clear();
+        this.typedCache = null;
+    }
+
+    /**
+     * 把服务端返回的 json 合并进来：修改过的字段保留本地的值，修改前的值改为服务端的值；其他字段以 json 为准
+     */
+    public void _mergeJson(JsonObject json) {
+        if (json == null) {
+            json = new JsonObject();
+        }
+        for (String key : dirtyKeys) {
+            if (!SPECIAL_UNSET.equals(key)) {
+                originals.put(key, json.get(key));
+            }
+            JsonElement local = this.json.get(key);
+            if (local != null) {
+                json.add(key, local);
+            } else {
+                json.remove(key);
+            }
+        }
+        this.json = json;
+        this.typedCache = null;
+    }
+
+    /**
+     * @return 修改过的字段
+     */
+    public Set<String> _getDirtyKeys() {
+        return Collections.unmodifiableSet(dirtyKeys);
+    }
+
+    public void _clearDirty() {
+        dirtyKeys.clear();
+        originals.clear();
+    }
+
+    /**
+     * 新增或更新时的请求体，pointer 类型的字段只需要传 id；
+     * 不会复制整个 json，字段的值和当前对象共用
+     * @param dirtyOnly 为 true 时只包含修改过的字段（更新）
+     */
+    public JsonObject _requestBody(boolean dirtyOnly) {
+        JsonObject body = new JsonObject();
+        for (String key : dirtyOnly ? dirtyKeys : json.keySet()) {
+            JsonElement elem = json.get(key);
+            if (elem != null) {
+                String id = Util.getPointerId(elem);
+                body.add(key, id != null ? new JsonPrimitive(id) : elem);
+            }
+        }
+        return body;
+    }
+
+    /**
+     * 部分更新的请求体，和修改前的值比较：
+     * 1. 值没有变化的字段不提交
+     * 2. 被 {@link #remove(String)} 的字段放入 {@link #SPECIAL_UNSET}
+     * 3. 其他字段按 put 的值提交，只有调用 {@link #incrementBy(String, int)}、{@link #append(String, Collection)} 等方法时才是原子操作
+     * @see SaveOptions#partialUpdate
+     */
+    public JsonObject _partialBody() {
+        JsonObject body = new JsonObject();
+        JsonObject unset = new JsonObject();
+        for (String key : dirtyKeys) {
+            JsonElement value = json.get(key);
+            JsonElement original = originals.get(key);
+            if (SPECIAL_UNSET.equals(key)) {
+                if (value != null && value.isJsonObject()) {
+                    for (Map.Entry<String, JsonElement> entry : value.getAsJsonObject().entrySet()) {
+                        unset.add(entry.getKey(), entry.getValue());
+                    }
+                }
+                continue;
+            }
+            if (value == null) {
+                if (original != null) {
+                    unset.addProperty(key, "");
+                }
+                continue;
+            }
+            if (value.equals(original)) {
+                continue;
+            }
+            String id = Util.getPointerId(value);
+            body.add(key, id != null ? new JsonPrimitive(id) : value);
+        }
+        if (unset.size() > 0) {
+            body.add(SPECIAL_UNSET, unset);
+        }
+        return body;
     }
 
     public Table _getTable() {
@@ -172,9 +312,81 @@ public class Record {
         Record clone = new Record();
         clone._setTable(table);
         clone._setJson(json.deepCopy());
+        clone.dirtyKeys.addAll(dirtyKeys);
+        clone.originals.putAll(originals);
         return clone;
     }
 
+    /**
+     * 第一次修改 key 之前记下它原来的值
+     */
+    private void touch(String key) {
+        if (dirtyKeys.add(key)) {
+            originals.put(key, json.get(key));
+        }
+        if (typedCache != null) {
+            typedCache.remove(key);
+        }
+    }
+
+    /**
+     * @return 没有缓存时返回 null，缓存的结果为 null 时返回 {@link #NULL}
+     */
+    private @Nullable Object getTyped(String key, Object type) {
+        Map<Object, Object> types = typedCache != null ? typedCache.get(key) : null;
+        Object value = types != null ? types.get(type) : null;
+        return value != null ? copyOf(value) : null;
+    }
+
+    private <T> T putTyped(String key, Object type, @Nullable T value) {
+        Object copy = value != null ? copyOf(value) : null;
+        if (value != null && copy == null) {
+            return value;
+        }
+        if (typedCache == null) {
+            typedCache = new HashMap<>();
+        }
+        Map<Object, Object> types = typedCache.get(key);
+        if (types == null) {
+            types = new HashMap<>(2);
+            typedCache.put(key, types);
+        }
+        types.put(type, value != null ? value : NULL);
+        return (T) copy;
+    }
+
+    /**
+     * 缓存的对象不会直接交给调用方：不可变的对象直接返回，{@link Calendar}、{@link GeoPoint} 和元素不可变的 {@link List} 返回副本
+     * @return 无法复制的对象（比如自定义类型、{@link CloudFile}）返回 null，这些结果不缓存
+     */
+    private static @Nullable Object copyOf(Object value) {
+        if (isImmutable(value)) {
+            return value;
+        }
+        if (value instanceof Calendar) {
+            return ((Calendar) value).clone();
+        }
+        if (value instanceof GeoPoint) {
+            GeoPoint point = (GeoPoint) value;
+            return new GeoPoint(point.getLongitude(), point.getLatitude());
+        }
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (item != null && !isImmutable(item)) {
+                    return null;
+                }
+            }
+            return new ArrayList<>((List<?>) value);
+        }
+        return null;
+    }
+
+    private static boolean isImmutable(Object value) {
+        return value instanceof String || value instanceof Boolean || value instanceof Character
+                || value instanceof Integer || value instanceof Long || value instanceof Double || value instanceof Float
+                || value instanceof Short || value instanceof Byte || value instanceof Enum;
+    }
+
     private @Nullable <T> List<T> getArray(@NonNull String key, Function<JsonElement, T> transform) {
         Util.assetNotNull(key);
         try {
@@ -199,6 +411,7 @@ public class Record {
      * @return
      */
     public Record unset(Collection<String> fields) {
+        touch(SPECIAL_UNSET);
         if (fields == null || fields.isEmpty()) {
             json.remove(SPECIAL_UNSET);
         } else {
@@ -212,6 +425,7 @@ public class Record {
     }
 
     public Record remove(@NonNull String key) {
+        touch(key);
         json.remove(key);
         return this;
     }
@@ -356,6 +570,7 @@ public class Record {
                 obj.addProperty(Record.TABLE, table);
             }
         }
+        touch(key);
         json.add(key, elem);
         return this;
     }
@@ -421,22 +636,40 @@ public class Record {
     }
 
 
+    /**
+     * 结果会被缓存，直到该字段被修改
+     */
     public @Nullable <T> List<T> getArray(@NonNull String key, final Class<T> clz) {
-        return getArray(key, new Function<JsonElement, T>() {
+        Util.assetNotNull(key);
+        Object cacheKey = Arrays.asList(List.class, clz);
+        Object cached = getTyped(key, cacheKey);
+        if (cached != null) {
+            return cached != NULL ? (List<T>) cached : null;
+        }
+        return putTyped(key, cacheKey, getArray(key, new Function<JsonElement, T>() {
             @Override
             public T on(JsonElement elem) {
                 return Global.gson().fromJson(elem, clz);
             }
-        });
+        }));
     }
 
+    /**
+     * 结果会被缓存，直到该字段被修改；每次返回的都是新的对象，修改它不会影响 record 和下一次的结果
+     */
     public <T> T getObject(@NonNull String key, Class<T> clz) {
         Util.assetNotNull(key);
+        Object cached = getTyped(key, clz);
+        if (cached != null) {
+            return cached != NULL ? (T) cached : null;
+        }
+        T value;
         try {
-            return Global.gson().fromJson(json.get(key), clz);
+            value = Global.gson().fromJson(json.get(key), clz);
         } catch (Exception e) {
-            return null;
+            value = null;
         }
+        return putTyped(key, clz, value);
     }
 
     /**
@@ -448,11 +681,17 @@ public class Record {
      */
     public <T> T getObject(@NonNull String key, Type type) {
         Util.assetNotNull(key);
+        Object cached = getTyped(key, type);
+        if (cached != null) {
+            return cached != NULL ? (T) cached : null;
+        }
+        T value;
         try {
-            return Global.gson().fromJson(json.get(key), type);
+            value = Global.gson().fromJson(json.get(key), type);
         } catch (JsonSyntaxException e) {
-            return null;
+            value = null;
         }
+        return putTyped(key, type, value);
     }
 
     public @Nullable Boolean getBoolean(@NonNull String key) {
@@ -0,0 +1,128 @@
+package com.minapp.android.sdk.database;
+
+import android.util.Log;
+import android.util.LruCache;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.gson.JsonObject;
+import com.minapp.android.sdk.Const;
+import com.minapp.android.sdk.Global;
+
+import java.util.List;
+
+/**
+ * 内存中的 {@link Record} 缓存，以 table name + record id 为 key，保存记录序列化后的 json：
+ * 按 json 的大小计算容量，超出后按 LRU 淘汰；每次读取都会得到一个新的 {@link Record}，修改它不会影响缓存
+ * @see com.minapp.android.sdk.Config#setRecordCacheSize(int)
+ */
+public class RecordCache {
+
+    private final LruCache<String, String> cache;
+
+    public RecordCache(int maxBytes) {
+        cache = new LruCache<String, String>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, String value) {
+                // java 的 char 占 2 个字节
+                return (key.length() + value.length()) * 2;
+            }
+        };
+    }
+
+    public @Nullable JsonObject get(@NonNull String tableName, @NonNull String recordId) {
+        String json = cache.get(key(tableName, recordId));
+        try {
+            return json != null ? Global.gson().fromJson(json, JsonObject.class) : null;
+        } catch (Exception e) {
+            Log.e(Const.TAG, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    public void put(@NonNull String tableName, @Nullable Record record) {
+        String id = record != null ? record.getId() : null;
+        if (id != null) {
+            cache.put(key(tableName, id), Global.gson().toJson(record._getJson()));
+        }
+    }
+
+    public void putAll(@NonNull String tableName, @Nullable List<Record> records) {
+        if (records != null) {
+            for (Record record : records) {
+                put(tableName, record);
+            }
+        }
+    }
+
+    public void remove(@NonNull String tableName, @NonNull String recordId) {
+        cache.remove(key(tableName, recordId));
+    }
+
+    /**
+     * 批量更新、批量删除等无法知道影响了哪些记录的操作，只能把整张表的缓存清掉
+     */
+    public void removeTable(@NonNull String tableName) {
+        String prefix = key(tableName, "");
+        for (String key : cache.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                cache.remove(key);
+            }
+        }
+    }
+
+    public void clear() {
+        cache.evictAll();
+    }
+
+    public @NonNull Stats stats() {
+        Stats stats = new Stats();
+        stats.hitCount = cache.hitCount();
+        stats.missCount = cache.missCount();
+        stats.putCount = cache.putCount();
+        stats.evictionCount = cache.evictionCount();
+        stats.size = cache.size();
+        stats.maxSize = cache.maxSize();
+        return stats;
+    }
+
+    private static String key(String tableName, String recordId) {
+        return tableName + ":" + recordId;
+    }
+
+
+    /**
+     * 缓存的命中情况，用来调整缓存的大小
+     */
+    public static class Stats {
+
+        public int hitCount;
+
+        public int missCount;
+
+        public int putCount;
+
+        /**
+         * 因为容量不足被淘汰的次数
+         */
+        public int evictionCount;
+
+        /**
+         * 当前占用的字节数
+         */
+        public int size;
+
+        public int maxSize;
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "hitCount=" + hitCount +
+                    ", missCount=" + missCount +
+                    ", putCount=" + putCount +
+                    ", evictionCount=" + evictionCount +
+                    ", size=" + size +
+                    ", maxSize=" + maxSize +
+                    '}';
+        }
+    }
+}
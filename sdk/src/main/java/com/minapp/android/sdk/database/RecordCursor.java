@@ -0,0 +1,154 @@
+package com.minapp.android.sdk.database;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.minapp.android.sdk.Const;
+import com.minapp.android.sdk.Global;
+import com.minapp.android.sdk.database.query.Query;
+import com.minapp.android.sdk.util.Lane;
+import com.minapp.android.sdk.util.PagedList;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * 逐条遍历查询结果，按需（offset + limit）分页拉取：<br />
+ * 1. 当前页快要遍历完时，在后台预取下一页<br />
+ * 2. 只持有当前页和预取的下一页，遍历过的页会被释放，遍历大量数据时内存占用是恒定的<br />
+ * 建议在查询条件中指定 {@link Query#ORDER_BY}，否则翻页的顺序不稳定
+ * @see Table#iterate(Query)
+ */
+public class RecordCursor implements Closeable {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final Table table;
+    private final Query query;
+    private final int pageSize;
+    private final int prefetchThreshold;
+
+    private List<Record> page = Collections.emptyList();
+    private int index = 0;
+    private long nextOffset;
+    private boolean lastPage = false;
+    private @Nullable Future<PagedList<Record>> prefetch;
+    private boolean closed = false;
+
+
+    RecordCursor(@NonNull Table table, @Nullable Query query) {
+        this.table = table;
+        this.query = new Query();
+        if (query != null) {
+            this.query.putAll(query);
+        }
+        this.pageSize = parseInt(this.query.get(Query.LIMIT), DEFAULT_PAGE_SIZE);
+        this.nextOffset = parseInt(this.query.get(Query.OFFSET), 0);
+        this.prefetchThreshold = Math.max(1, pageSize / 4);
+    }
+
+    /**
+     * 是否还有下一条记录，必要时会同步拉取下一页
+     */
+    public boolean hasNext() throws Exception {
+        if (closed) {
+            return false;
+        }
+        if (index < page.size()) {
+            return true;
+        }
+        if (lastPage) {
+            return false;
+        }
+
+        PagedList<Record> next;
+        if (prefetch != null) {
+            try {
+                next = prefetch.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof Exception ? (Exception) cause : e;
+            } finally {
+                prefetch = null;
+            }
+        } else {
+            next = fetchPage(nextOffset);
+        }
+        onPage(next);
+        return index < page.size();
+    }
+
+    public @NonNull Record next() throws Exception {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Record record = page.get(index++);
+        if (!lastPage && prefetch == null && page.size() - index <= prefetchThreshold) {
+            startPrefetch();
+        }
+        return record;
+    }
+
+    /**
+     * 停止遍历，取消正在进行的预取
+     */
+    @Override
+    public void close() {
+        closed = true;
+        page = Collections.emptyList();
+        if (prefetch != null) {
+            prefetch.cancel(true);
+            prefetch = null;
+        }
+    }
+
+
+    private void onPage(@Nullable PagedList<Record> next) {
+        List<Record> objects = next != null ? next.getObjects() : null;
+
+        // 释放上一页
+        page = objects != null ? objects : Collections.<Record>emptyList();
+        index = 0;
+        nextOffset += page.size();
+        if (page.size() < pageSize || next.getNext() == null) {
+            lastPage = true;
+        }
+    }
+
+    private void startPrefetch() {
+        final long offset = nextOffset;
+        try {
+            prefetch = Global.submit(Lane.PREFETCH, new Callable<PagedList<Record>>() {
+                @Override
+                public PagedList<Record> call() throws Exception {
+                    return fetchPage(offset);
+                }
+            });
+        } catch (Exception e) {
+            // 线程池拒绝时，退化为在 hasNext 里同步拉取
+            Log.e(Const.TAG, e.getMessage(), e);
+            prefetch = null;
+        }
+    }
+
+    private PagedList<Record> fetchPage(long offset) throws Exception {
+        Query pageQuery = new Query();
+        pageQuery.putAll(query);
+        pageQuery.limit(pageSize);
+        pageQuery.offset(offset);
+        return Database.query(table, pageQuery);
+    }
+
+    private static int parseInt(@Nullable String value, int defaultValue) {
+        try {
+            return value != null ? Integer.parseInt(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.minapp.android.sdk.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import com.minapp.android.sdk.Const;
+import com.minapp.android.sdk.Global;
+import com.minapp.android.sdk.database.query.Query;
+import com.minapp.android.sdk.util.PagedListResponse;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 基于 SQLite 的本地 {@link Record} 缓存：
+ * 1. record 表以 table name + record id 为主键，保存完整的记录
+ * 2. query_result 表以 table name + 查询条件为主键，保存查询返回的整页数据
+ */
+public class RecordStore extends SQLiteOpenHelper {
+
+    public static final String DB_NAME = "hydrogen_record_store.db";
+    private static final int DB_VERSION = 1;
+
+    private static final String TABLE_RECORD = "record";
+    private static final String TABLE_QUERY_RESULT = "query_result";
+
+    private static final String COLUMN_TABLE_NAME = "table_name";
+    private static final String COLUMN_RECORD_ID = "record_id";
+    private static final String COLUMN_QUERY_KEY = "query_key";
+    private static final String COLUMN_JSON = "json";
+    private static final String COLUMN_CACHED_AT = "cached_at";
+
+    private static final Type PAGE_TYPE = new TypeToken<PagedListResponse<Record>>(){}.getType();
+
+
+    public RecordStore(@NonNull Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_RECORD + " ("
+                + COLUMN_TABLE_NAME + " TEXT NOT NULL, "
+                + COLUMN_RECORD_ID + " TEXT NOT NULL, "
+                + COLUMN_JSON + " TEXT NOT NULL, "
+                + COLUMN_CACHED_AT + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + COLUMN_TABLE_NAME + ", " + COLUMN_RECORD_ID + "))");
+        db.execSQL("CREATE TABLE " + TABLE_QUERY_RESULT + " ("
+                + COLUMN_TABLE_NAME + " TEXT NOT NULL, "
+                + COLUMN_QUERY_KEY + " TEXT NOT NULL, "
+                + COLUMN_JSON + " TEXT NOT NULL, "
+                + COLUMN_CACHED_AT + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + COLUMN_TABLE_NAME + ", " + COLUMN_QUERY_KEY + "))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_RECORD);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_QUERY_RESULT);
+        onCreate(db);
+    }
+
+
+    /*************************** record ***********************************/
+
+
+    public @Nullable JsonObject getRecord(@NonNull String tableName, @NonNull String recordId) {
+        String json = queryJson(TABLE_RECORD, COLUMN_RECORD_ID, tableName, recordId);
+        try {
+            return json != null ? Global.gson().fromJson(json, JsonObject.class) : null;
+        } catch (Exception e) {
+            Log.e(Const.TAG, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    public void putRecord(@NonNull String tableName, @NonNull Record record) {
+        String id = record.getId();
+        if (id == null) {
+            return;
+        }
+        try {
+            getWritableDatabase().insertWithOnConflict(
+                    TABLE_RECORD, null, recordValues(tableName, id, record), SQLiteDatabase.CONFLICT_REPLACE);
+        } catch (Exception e) {
+            Log.e(Const.TAG, e.getMessage(), e);
+        }
+    }
+
+    public void putRecords(@NonNull String tableName, @Nullable List<Record> records) {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase db = null;
+        try {
+            db = getWritableDatabase();
+            db.beginTransaction();
+            for (Record record : records) {
+                String id = record.getId();
+                if (id != null) {
+                    db.insertWithOnConflict(
+                            TABLE_RECORD, null, recordValues(tableName, id, record), SQLiteDatabase.CONFLICT_REPLACE);
+                }
+            }
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            Log.e(Const.TAG, e.getMessage(), e);
+        } finally {
+            if (db != null) {
+                db.endTransaction();
+            }
+        }
+    }
+
+    public void removeRecord(@NonNull String tableName, @NonNull String recordId) {
+        try {
+            getWritableDatabase().delete(TABLE_RECORD,
+                    COLUMN_TABLE_NAME + " = ? AND " + COLUMN_RECORD_ID + " = ?",
+                    new String[]{tableName, recordId});
+        } catch (Exception e) {
+            Log.e(Const.TAG, e.getMessage(), e);
+        }
+    }
+
+
+    /*************************** query result ***********************************/
+
+
+    public @Nullable PagedListResponse<Record> getQueryResult(@NonNull String tableName, @Nullable Query query) {
+        String json = queryJson(TABLE_QUERY_RESULT, COLUMN_QUERY_KEY, tableName, queryKey(query));
+        try {
+            return json != null ? Global.gson().<PagedListResponse<Record>>fromJson(json, PAGE_TYPE) : null;
+        } catch (Exception e) {
+            Log.e(Const.TAG, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    public void putQueryResult(@NonNull String tableName, @Nullable Query query, @NonNull PagedListResponse<Record> page) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_TABLE_NAME, tableName);
+        values.put(COLUMN_QUERY_KEY, queryKey(query));
+        values.put(COLUMN_JSON, Global.gson().toJson(page, PAGE_TYPE));
+        values.put(COLUMN_CACHED_AT, System.currentTimeMillis());
+        try {
+            getWritableDatabase().insertWithOnConflict(
+                    TABLE_QUERY_RESULT, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        } catch (Exception e) {
+            Log.e(Const.TAG, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 表里的数据有变动时，之前缓存的查询结果都不再可信
+     */
+    public void removeQueryResults(@NonNull String tableName) {
+        try {
+            getWritableDatabase().delete(TABLE_QUERY_RESULT,
+                    COLUMN_TABLE_NAME + " = ?", new String[]{tableName});
+        } catch (Exception e) {
+            Log.e(Const.TAG, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 批量更新、批量删除等无法知道影响了哪些记录的操作，只能把整张表的缓存清掉
+     */
+    public void removeTable(@NonNull String tableName) {
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            db.delete(TABLE_RECORD, COLUMN_TABLE_NAME + " = ?", new String[]{tableName});
+            db.delete(TABLE_QUERY_RESULT, COLUMN_TABLE_NAME + " = ?", new String[]{tableName});
+        } catch (Exception e) {
+            Log.e(Const.TAG, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 清空所有缓存
+     */
+    public void clear() {
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            db.delete(TABLE_RECORD, null, null);
+            db.delete(TABLE_QUERY_RESULT, null, null);
+        } catch (Exception e) {
+            Log.e(Const.TAG, e.getMessage(), e);
+        }
+    }
+
+
+    /*************************** private method ***********************************/
+
+
+    private @Nullable String queryJson(String table, String keyColumn, String tableName, String key) {
+        Cursor cursor = null;
+        try {
+            cursor = getReadableDatabase().query(table, new String[]{COLUMN_JSON},
+                    COLUMN_TABLE_NAME + " = ? AND " + keyColumn + " = ?",
+                    new String[]{tableName, key}, null, null, null);
+            return cursor != null && cursor.moveToFirst() ? cursor.getString(0) : null;
+        } catch (Exception e) {
+            Log.e(Const.TAG, e.getMessage(), e);
+            return null;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    private static ContentValues recordValues(String tableName, String recordId, Record record) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_TABLE_NAME, tableName);
+        values.put(COLUMN_RECORD_ID, recordId);
+        values.put(COLUMN_JSON, Global.gson().toJson(record._getJson()));
+        values.put(COLUMN_CACHED_AT, System.currentTimeMillis());
+        return values;
+    }
+
+    /**
+     * 把查询条件按 key 排序后序列化，保证相同的查询条件得到相同的 key
+     */
+    static String queryKey(@Nullable Query query) {
+        if (query == null || query.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> entry : new TreeMap<>(query).entrySet()) {
+            sb.append(entry.getKey()).append('=').append(entry.getValue()).append('&');
+        }
+        return sb.toString();
+    }
+}
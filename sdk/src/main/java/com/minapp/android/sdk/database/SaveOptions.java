@@ -22,4 +22,11 @@ public class SaveOptions {
      */
     public Boolean enableTrigger;
 
+    /**
+     * 是否只提交和获取时相比有变化的部分（{@link Record#_partialBody()}），适合更新大的记录：
+     * 值没有变化的字段不提交，被删除的字段用 $unset，其他字段按 put 的值覆盖服务端的值
+     * 更新 Record 时可用
+     */
+    public Boolean partialUpdate;
+
 }
@@ -3,10 +3,14 @@ package com.minapp.android.sdk.database;
 import android.text.TextUtils;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import com.minapp.android.sdk.Config;
 import com.minapp.android.sdk.database.query.Query;
+import com.minapp.android.sdk.database.query.Where;
 import com.minapp.android.sdk.util.PagedList;
 import com.minapp.android.sdk.util.BaseCallback;
+import com.minapp.android.sdk.util.Lane;
 import com.minapp.android.sdk.util.Util;
+import com.minapp.android.sdk.util.Task;
 
 import java.util.Collection;
 import java.util.List;
@@ -38,19 +42,42 @@ public class Table {
     /******************************** simple curd **************************************/
 
 
-    public void countInBackground(final Query query, BaseCallback<Integer> cb) {
-        Util.inBackground(cb, new Callable<Integer>() {
+    public Task<Integer> countInBackground(final Query query, BaseCallback<Integer> cb) {
+        return Util.inBackground(cb, new Callable<Integer>() {
             @Override
             public Integer call() throws Exception {
-                List list = query(query).getObjects();
-                return list != null ? list.size() : 0;
+                return count(query);
             }
         });
     }
 
+    /**
+     * 符合查询条件的记录数，由服务端计数（meta.total_count），不会下载记录
+     * @param query 其中的 limit, offset, order_by 会被忽略
+     * @return
+     * @throws Exception
+     */
     public int count(Query query) throws Exception {
-        List list = query(query).getObjects();
-        return list != null ? list.size() : 0;
+        return Database.count(this, query);
+    }
+
+    /**
+     * 同时对多个查询条件计数，比如多个角标
+     * @param wheres
+     * @return 与 wheres 的顺序一致
+     * @throws Exception
+     */
+    public List<Integer> count(List<Where> wheres) throws Exception {
+        return Database.count(this, wheres);
+    }
+
+    public Task<List<Integer>> countInBackground(final List<Where> wheres, BaseCallback<List<Integer>> cb) {
+        return Util.inBackground(cb, new Callable<List<Integer>>() {
+            @Override
+            public List<Integer> call() throws Exception {
+                return count(wheres);
+            }
+        });
     }
 
     /**
@@ -84,22 +111,26 @@ public class Table {
         return fetchRecord(recordId, null);
     }
 
-    public void fetchRecordInBackground(final String recordId, final Query query, @NonNull final BaseCallback<Record> cb) {
-        Util.inBackground(cb, new Callable<Record>() {
-            @Override
-            public Record call() throws Exception {
-                return fetchRecord(recordId, query);
-            }
-        });
+    /**
+     * 通过此 api 获取一条记录
+     * @param policy 只有不带 expand 和 keys 的查询才会读取本地缓存，需要先开启 {@link Config#setRecordStoreEnabled(boolean)}
+     * @return
+     */
+    public Record fetchRecord(String recordId, Query query, CachePolicy policy) throws Exception {
+        return Database.fetch(this, recordId, query, policy);
     }
 
-    public void fetchRecordInBackground(
+    public Task<Record> fetchRecordInBackground(final String recordId, final Query query, @NonNull final BaseCallback<Record> cb) {
+        return Database.fetchInBackground(this, recordId, query, null, cb);
+    }
+
+    public Task<Record> fetchRecordInBackground(
             final String recordId,
             @Nullable final Collection<String> expands,
             @Nullable final Collection<String> keys,
             @NonNull BaseCallback<Record> cb) {
 
-        Util.inBackground(cb, new Callable<Record>() {
+        return Util.inBackground(cb, new Callable<Record>() {
             @Override
             public Record call() throws Exception {
                 return fetchRecord(recordId, expands, keys);
@@ -107,11 +138,36 @@ public class Table {
         });
     }
 
-    public void fetchRecordInBackground(final String recordId, @NonNull BaseCallback<Record> cb) {
-        Util.inBackground(cb, new Callable<Record>() {
+    public Task<Record> fetchRecordInBackground(final String recordId, @NonNull BaseCallback<Record> cb) {
+        return Database.fetchInBackground(this, recordId, null, null, cb);
+    }
+
+    /**
+     * @see #fetchRecord(String, Query, CachePolicy)
+     */
+    public Task<Record> fetchRecordInBackground(
+            final String recordId, final Query query, final CachePolicy policy, @NonNull final BaseCallback<Record> cb) {
+        if (policy == null || policy == CachePolicy.NETWORK_ONLY) {
+            return Database.fetchInBackground(this, recordId, query, policy, cb);
+        }
+        if (policy != CachePolicy.CACHE_THEN_NETWORK) {
+            return Util.inBackground(cb, new Callable<Record>() {
+                @Override
+                public Record call() throws Exception {
+                    return fetchRecord(recordId, query, policy);
+                }
+            });
+        }
+
+        return Util.inBackground(cb, new Callable<Record>() {
+            @Override
+            public Record call() throws Exception {
+                return Database.fetchFromCache(Table.this, recordId, query);
+            }
+        }, new Callable<Record>() {
             @Override
             public Record call() throws Exception {
-                return fetchRecord(recordId);
+                return fetchRecord(recordId, query, CachePolicy.NETWORK_ONLY);
             }
         });
     }
@@ -132,15 +188,60 @@ public class Table {
      * @param query
      * @param cb
      */
-    public void queryInBackground(final Query query, @NonNull final BaseCallback<PagedList<Record>> cb) {
-        Util.inBackground(cb, new Callable<PagedList<Record>>() {
+    public Task<PagedList<Record>> queryInBackground(final Query query, @NonNull final BaseCallback<PagedList<Record>> cb) {
+        return Database.queryInBackground(this, query, cb);
+    }
+
+    /**
+     * 查询
+     * @param policy 需要先开启 {@link Config#setRecordStoreEnabled(boolean)}，否则等同于 {@link CachePolicy#NETWORK_ONLY}
+     * @see CachePolicy
+     */
+    public PagedList<Record> query(Query query, CachePolicy policy) throws Exception {
+        return Database.query(this, query, policy);
+    }
+
+    /**
+     * 查询
+     * @param policy 为 {@link CachePolicy#CACHE_THEN_NETWORK} 时，cb 会先收到缓存的结果，再收到网络的结果
+     * @see #query(Query, CachePolicy)
+     */
+    public Task<PagedList<Record>> queryInBackground(
+            final Query query, final CachePolicy policy, @NonNull final BaseCallback<PagedList<Record>> cb) {
+        if (policy == null || policy == CachePolicy.NETWORK_ONLY) {
+            return Database.queryInBackground(this, query, cb);
+        }
+        if (policy != CachePolicy.CACHE_THEN_NETWORK) {
+            return Util.inBackground(cb, new Callable<PagedList<Record>>() {
+                @Override
+                public PagedList<Record> call() throws Exception {
+                    return query(query, policy);
+                }
+            });
+        }
+
+        return Util.inBackground(cb, new Callable<PagedList<Record>>() {
+            @Override
+            public PagedList<Record> call() throws Exception {
+                return Database.queryFromCache(Table.this, query);
+            }
+        }, new Callable<PagedList<Record>>() {
             @Override
             public PagedList<Record> call() throws Exception {
-                return query(query);
+                return query(query, CachePolicy.NETWORK_ONLY);
             }
         });
     }
 
+    /**
+     * 逐条遍历查询结果，自动翻页；用完后需要调用 {@link RecordCursor#close()}
+     * @param query 其中的 {@link Query#LIMIT} 作为每页的大小，默认是 {@link RecordCursor#DEFAULT_PAGE_SIZE}
+     * @return
+     */
+    public RecordCursor iterate(Query query) {
+        return new RecordCursor(this, query);
+    }
+
     /**
      * 根据 id 构造一条记录，但不去抓取这条记录的内容，所以这条记录只有 table 和 id 信息
      * @param id
@@ -185,6 +286,16 @@ public class Table {
         return Database.batchSave(this, records, query);
     }
 
+    /**
+     * 批量保存，记录数较多时拆分为多个请求并行发出
+     * @param options 为 null 时使用默认配置
+     * @return 所有请求合并后的结果
+     * @throws Exception
+     */
+    public BatchResult batchSave(List<Record> records, Query query, @Nullable BatchOptions options) throws Exception {
+        return Database.batchSave(this, records, query, options);
+    }
+
     /**
      * 批量更新
      * @param query
@@ -197,8 +308,46 @@ public class Table {
     }
 
 
-    public void batchDeleteInBackground(final Query query, @NonNull final BaseCallback<BatchResult> cb) {
-        Util.inBackground(cb, new Callable<BatchResult>() {
+    /**
+     * 批量删除
+     * @param options {@link BatchOptions#followNext} 时删除所有符合条件的记录，为 null 时使用默认配置
+     * @throws Exception
+     */
+    public BatchResult batchDelete(Query query, @Nullable BatchOptions options) throws Exception {
+        return Database.batchDelete(this, query, options);
+    }
+
+    /**
+     * 批量更新
+     * @param options {@link BatchOptions#followNext} 时更新所有符合条件的记录，为 null 时使用默认配置
+     * @throws Exception
+     */
+    public BatchResult batchUpdate(Query query, Record update, @Nullable BatchOptions options) throws Exception {
+        return Database.batchUpdate(this, query, update, options);
+    }
+
+    public Task<BatchResult> batchDeleteInBackground(
+            final Query query, @Nullable final BatchOptions options, @NonNull final BaseCallback<BatchResult> cb) {
+        return Util.inBackground(Lane.BULK, cb, new Callable<BatchResult>() {
+            @Override
+            public BatchResult call() throws Exception {
+                return batchDelete(query, options);
+            }
+        });
+    }
+
+    public Task<BatchResult> batchUpdateInBackground(
+            final Query query, final Record update, @Nullable final BatchOptions options, @NonNull final BaseCallback<BatchResult> cb) {
+        return Util.inBackground(Lane.BULK, cb, new Callable<BatchResult>() {
+            @Override
+            public BatchResult call() throws Exception {
+                return batchUpdate(query, update, options);
+            }
+        });
+    }
+
+    public Task<BatchResult> batchDeleteInBackground(final Query query, @NonNull final BaseCallback<BatchResult> cb) {
+        return Util.inBackground(cb, new Callable<BatchResult>() {
             @Override
             public BatchResult call() throws Exception {
                 return batchDelete(query);
@@ -206,8 +355,8 @@ public class Table {
         });
     }
 
-    public void batchSaveInBackground(final List<Record> records, @NonNull final BaseCallback<BatchResult> cb) {
-        Util.inBackground(cb, new Callable<BatchResult>() {
+    public Task<BatchResult> batchSaveInBackground(final List<Record> records, @NonNull final BaseCallback<BatchResult> cb) {
+        return Util.inBackground(cb, new Callable<BatchResult>() {
             @Override
             public BatchResult call() throws Exception {
                 return batchSave(records);
@@ -215,8 +364,8 @@ public class Table {
         });
     }
 
-    public void batchSaveInBackground(final List<Record> records, final Query query, @NonNull final BaseCallback<BatchResult> cb) {
-        Util.inBackground(cb, new Callable<BatchResult>() {
+    public Task<BatchResult> batchSaveInBackground(final List<Record> records, final Query query, @NonNull final BaseCallback<BatchResult> cb) {
+        return Util.inBackground(cb, new Callable<BatchResult>() {
             @Override
             public BatchResult call() throws Exception {
                 return batchSave(records, query);
@@ -224,8 +373,18 @@ public class Table {
         });
     }
 
-    public void batchUpdateInBackground(final Query query, final Record update, @NonNull final BaseCallback<BatchResult> cb) {
-        Util.inBackground(cb, new Callable<BatchResult>() {
+    public Task<BatchResult> batchSaveInBackground(
+            final List<Record> records, final Query query, @Nullable final BatchOptions options, @NonNull final BaseCallback<BatchResult> cb) {
+        return Util.inBackground(Lane.BULK, cb, new Callable<BatchResult>() {
+            @Override
+            public BatchResult call() throws Exception {
+                return batchSave(records, query, options);
+            }
+        });
+    }
+
+    public Task<BatchResult> batchUpdateInBackground(final Query query, final Record update, @NonNull final BaseCallback<BatchResult> cb) {
+        return Util.inBackground(cb, new Callable<BatchResult>() {
             @Override
             public BatchResult call() throws Exception {
                 return batchUpdate(query, update);
@@ -0,0 +1,415 @@
+package com.minapp.android.sdk.database;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.minapp.android.sdk.BaaS;
+import com.minapp.android.sdk.Config;
+import com.minapp.android.sdk.Global;
+import com.minapp.android.sdk.database.query.Query;
+import com.minapp.android.sdk.model.BatchOperationResp;
+import com.minapp.android.sdk.database.query.Where;
+import com.minapp.android.sdk.util.Lane;
+import com.minapp.android.sdk.util.Task;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * 延迟写入（write-behind）：{@link Record#saveLater(com.minapp.android.sdk.util.BaseCallback)} 把修改放入队列，
+ * 同一条记录在 {@link Config#getWriteBehindWindow()} 内的多次修改合并为一次更新：
+ * 1. 普通字段后写的覆盖先写的
+ * 2. {@link Record#INCR_BY} 累加，{@link Record#APPEND}、{@link Record#APPEND_UNIQUE}、{@link Record#REMOVE} 拼接数组；
+ *    先设置了数值或数组，再做这些操作时，直接算出新的值
+ * 3. 不能合并的修改（比如先 {@link Record#APPEND} 再 {@link Record#REMOVE}）不会覆盖前面的修改，而是在前面的修改写入后再写入
+ * 4. 同一张表中合并后内容完全相同的多条记录（比如都是 +1），用一次 batchUpdate 写入
+ * 同一条记录的写入是串行的，前一次没有结束时，后面的修改继续合并，结束后再写入；
+ * 写入成功后在主线程把服务端返回的字段合并到 record，放入队列之后又修改过的字段不会被覆盖
+ */
+public class WriteBehindQueue {
+
+    private final Map<String, Entry> pending = new LinkedHashMap<>();
+    private final Set<String> writing = new HashSet<>();
+
+
+    /**
+     * @return 包含这次修改的写入结束时结束，成功时的结果是 record 本身（字段已经更新为服务端返回的值）
+     */
+    Task<Record> enqueue(@NonNull Record record) {
+        Table table = record._getTable();
+        String id = record.getId();
+        if (table == null || id == null) {
+            throw new IllegalStateException("saveLater requires a record with table and id");
+        }
+
+        JsonObject body = record._requestBody(true);
+        record._clearDirty();
+        clearOperators(record._getJson());
+        String key = table.getTableName() + ":" + id;
+        Task<Record> task = new Task<>();
+        boolean schedule = false;
+        synchronized (this) {
+            Entry entry = pending.get(key);
+            if (entry == null) {
+                entry = new Entry(key, table, id);
+                pending.put(key, entry);
+                schedule = true;
+            }
+            JsonObject last = entry.bodies.get(entry.bodies.size() - 1);
+            if (!merge(last, body)) {
+                entry.bodies.add(body);
+            }
+            entry.records.add(record);
+            entry.tasks.add(task);
+        }
+        if (schedule) {
+            Global.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flushInBackground();
+                }
+            }, Config.getWriteBehindWindow());
+        }
+        return task;
+    }
+
+    /**
+     * 立即写入所有等待中的修改，比如 Activity#onPause 时
+     */
+    public void flush() {
+        flushInBackground();
+    }
+
+    /**
+     * @return 等待写入的记录数
+     */
+    public synchronized int size() {
+        return pending.size();
+    }
+
+
+    /*************************** private method ***********************************/
+
+
+    private void flushInBackground() {
+        Task.submit(Lane.BULK, new Callable<Void>() {
+            @Override
+            public Void call() {
+                flushNow();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 写入所有不在写入中的记录，内容相同的记录合并为一次 batchUpdate
+     */
+    private void flushNow() {
+        Map<String, List<Entry>> groups = new LinkedHashMap<>();
+        synchronized (this) {
+            Iterator<Entry> it = pending.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (writing.contains(entry.key)) {
+                    continue;
+                }
+                it.remove();
+                writing.add(entry.key);
+                String groupKey = entry.table.getTableName() + ":" + entry.bodies.toString();
+                List<Entry> group = groups.get(groupKey);
+                if (group == null) {
+                    group = new ArrayList<>();
+                    groups.put(groupKey, group);
+                }
+                group.add(entry);
+            }
+        }
+
+        for (List<Entry> group : groups.values()) {
+            try {
+                if (group.size() == 1) {
+                    write(group.get(0));
+                } else {
+                    writeBatch(group);
+                }
+            } finally {
+                done(group);
+            }
+        }
+    }
+
+    /**
+     * 不能合并的修改按顺序依次写入
+     */
+    private void write(final Entry entry) {
+        final Record response;
+        try {
+            Record last = null;
+            for (JsonObject body : entry.bodies) {
+                last = Database.update(entry.table, entry.id, body);
+            }
+            response = last;
+        } catch (Exception e) {
+            complete(entry, e);
+            return;
+        }
+
+        // 调用方可能在写入期间继续修改 record，所以不在这个线程里修改它
+        Global.postOnMain(new Runnable() {
+            @Override
+            public void run() {
+                for (Record record : entry.records) {
+                    record._mergeJson(response._getJson().deepCopy());
+                }
+                complete(entry, null);
+            }
+        });
+    }
+
+    /**
+     * batchUpdate 不返回记录，所以 records 里的字段不会更新；
+     * 服务端转为异步操作时，等待它结束后才算写入完成
+     */
+    private void writeBatch(List<Entry> group) {
+        Entry first = group.get(0);
+        List<String> ids = new ArrayList<>(group.size());
+        for (Entry entry : group) {
+            ids.add(entry.id);
+        }
+        Exception error = null;
+        try {
+            Query query = new Query()
+                    .put(new Where().containedIn(Record.ID, ids))
+                    .limit(ids.size());
+            for (JsonObject body : first.bodies) {
+                BatchResult result = Database.batchUpdate(first.table, query, new Record(first.table, body));
+                BatchOperationResp operation = BaaS.awaitBatchOperation(result);
+                if (operation != null && !BatchOperationResp.STATUS_SUCCESS.equals(operation.getStatus())) {
+                    throw new IllegalStateException(
+                            "batch operation " + result.getOperationId() + " " + operation.getStatus());
+                }
+            }
+        } catch (Exception e) {
+            error = e;
+        }
+        for (Entry entry : group) {
+            complete(entry, error);
+        }
+    }
+
+    private void complete(Entry entry, @Nullable Exception error) {
+        for (int i = 0; i < entry.tasks.size(); i++) {
+            if (error != null) {
+                entry.tasks.get(i).completeExceptionally(error);
+            } else {
+                entry.tasks.get(i).complete(entry.records.get(i));
+            }
+        }
+    }
+
+    /**
+     * 写入期间又有新的修改时，立即写入（等待时间已经在前一次写入中度过了）
+     */
+    private void done(List<Entry> group) {
+        boolean more = false;
+        synchronized (this) {
+            for (Entry entry : group) {
+                writing.remove(entry.key);
+                more |= pending.containsKey(entry.key);
+            }
+        }
+        if (more) {
+            flushInBackground();
+        }
+    }
+
+    /**
+     * 原子操作已经放入队列，从 record 中去掉，避免下一次 saveLater 重复计算
+     */
+    private static void clearOperators(JsonObject json) {
+        json.remove(Record.SPECIAL_UNSET);
+        Iterator<Map.Entry<String, JsonElement>> it = json.entrySet().iterator();
+        while (it.hasNext()) {
+            if (operator(it.next().getValue()) != null) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 把 next 合并到 pending；有任何一个字段不能合并时不修改 pending
+     * @return 是否合并成功
+     */
+    static boolean merge(JsonObject pending, JsonObject next) {
+        Map<String, JsonElement> merged = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonElement> entry : next.entrySet()) {
+            String key = entry.getKey();
+            JsonElement value = entry.getValue();
+            JsonElement result;
+            if (Record.SPECIAL_UNSET.equals(key)) {
+                result = mergeUnset(pending, value);
+            } else if (isUnset(pending, key)) {
+                // 先删除再设置，合并后无法确定顺序
+                result = null;
+            } else {
+                result = mergeValue(pending.get(key), value);
+            }
+            if (result == null) {
+                return false;
+            }
+            merged.put(key, result);
+        }
+        for (Map.Entry<String, JsonElement> entry : merged.entrySet()) {
+            pending.add(entry.getKey(), entry.getValue());
+        }
+        return true;
+    }
+
+    /**
+     * 两次删除的字段取并集；删除 pending 中设置过的字段时不能合并
+     */
+    private static @Nullable JsonElement mergeUnset(JsonObject pending, JsonElement value) {
+        if (!value.isJsonObject()) {
+            return null;
+        }
+        for (String key : value.getAsJsonObject().keySet()) {
+            if (pending.has(key)) {
+                return null;
+            }
+        }
+        JsonElement old = pending.get(Record.SPECIAL_UNSET);
+        if (old == null) {
+            return value;
+        }
+        if (!old.isJsonObject()) {
+            return null;
+        }
+        JsonObject merged = old.getAsJsonObject().deepCopy();
+        for (Map.Entry<String, JsonElement> entry : value.getAsJsonObject().entrySet()) {
+            merged.add(entry.getKey(), entry.getValue());
+        }
+        return merged;
+    }
+
+    private static boolean isUnset(JsonObject pending, String key) {
+        JsonElement unset = pending.get(Record.SPECIAL_UNSET);
+        return unset != null && unset.isJsonObject() && unset.getAsJsonObject().has(key);
+    }
+
+    /**
+     * @return 合并后的值，不能合并时返回 null
+     */
+    private static @Nullable JsonElement mergeValue(@Nullable JsonElement old, JsonElement value) {
+        String op = operator(value);
+
+        // 后设置的值覆盖前面的修改
+        if (old == null || op == null) {
+            return value;
+        }
+        JsonElement b = value.getAsJsonObject().get(op);
+
+        // 先设置了数值或数组，再做原子操作：直接算出新的值
+        if (operator(old) == null) {
+            if (Record.INCR_BY.equals(op) && isNumber(old) && isNumber(b)) {
+                return add(old, b);
+            }
+            if (old.isJsonArray() && b.isJsonArray()) {
+                if (Record.APPEND.equals(op)) {
+                    return concat(old.getAsJsonArray(), b.getAsJsonArray());
+                }
+                if (Record.APPEND_UNIQUE.equals(op)) {
+                    JsonArray array = old.getAsJsonArray().deepCopy();
+                    for (JsonElement item : b.getAsJsonArray()) {
+                        if (!array.contains(item)) {
+                            array.add(item);
+                        }
+                    }
+                    return array;
+                }
+                if (Record.REMOVE.equals(op)) {
+                    JsonArray array = new JsonArray();
+                    for (JsonElement item : old.getAsJsonArray()) {
+                        if (!b.getAsJsonArray().contains(item)) {
+                            array.add(item);
+                        }
+                    }
+                    return array;
+                }
+            }
+            return null;
+        }
+
+        // 同一种原子操作
+        if (!op.equals(operator(old))) {
+            return null;
+        }
+        JsonElement a = old.getAsJsonObject().get(op);
+        JsonObject merged = new JsonObject();
+        if (Record.INCR_BY.equals(op) && isNumber(a) && isNumber(b)) {
+            merged.add(op, add(a, b));
+            return merged;
+        }
+        if ((Record.APPEND.equals(op) || Record.APPEND_UNIQUE.equals(op) || Record.REMOVE.equals(op))
+                && a.isJsonArray() && b.isJsonArray()) {
+            merged.add(op, concat(a.getAsJsonArray(), b.getAsJsonArray()));
+            return merged;
+        }
+        return null;
+    }
+
+    private static JsonArray concat(JsonArray a, JsonArray b) {
+        JsonArray array = new JsonArray();
+        array.addAll(a);
+        array.addAll(b);
+        return array;
+    }
+
+    /**
+     * @return 形如 {"$incr_by": 1} 时返回 "$incr_by"，否则返回 null
+     */
+    private static @Nullable String operator(@Nullable JsonElement elem) {
+        if (elem == null || !elem.isJsonObject() || elem.getAsJsonObject().size() != 1) {
+            return null;
+        }
+        String key = elem.getAsJsonObject().keySet().iterator().next();
+        return key.startsWith("$") ? key : null;
+    }
+
+    private static JsonPrimitive add(JsonElement a, JsonElement b) {
+        boolean integral = a.getAsString().indexOf('.') < 0 && b.getAsString().indexOf('.') < 0;
+        return integral
+                ? new JsonPrimitive(a.getAsLong() + b.getAsLong())
+                : new JsonPrimitive(a.getAsDouble() + b.getAsDouble());
+    }
+
+    private static boolean isNumber(JsonElement elem) {
+        return elem != null && elem.isJsonPrimitive() && elem.getAsJsonPrimitive().isNumber();
+    }
+
+
+    private static class Entry {
+
+        final String key;
+        final Table table;
+        final String id;
+        final List<JsonObject> bodies = new ArrayList<>();
+        final List<Record> records = new ArrayList<>();
+        final List<Task<Record>> tasks = new ArrayList<>();
+
+        Entry(String key, Table table, String id) {
+            this.key = key;
+            this.table = table;
+            this.id = id;
+            this.bodies.add(new JsonObject());
+        }
+    }
+}
@@ -7,6 +7,9 @@ public class BatchOperationResp {
     public static final String OPERATION_UPDATE = "update";
     public static final String OPERATION_DELETE = "delete";
 
+    public static final String STATUS_PENDING = "pending";
+    public static final String STATUS_SUCCESS = "success";
+
     /**
      * id : 1
      * schema_id : 1
@@ -0,0 +1,235 @@
+package com.minapp.android.sdk.storage;
+
+import androidx.annotation.NonNull;
+import com.minapp.android.sdk.Global;
+import com.minapp.android.sdk.exception.HttpException;
+import com.minapp.android.sdk.util.Lane;
+import com.minapp.android.sdk.util.ProgressListener;
+import com.minapp.android.sdk.util.Task;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量上传：每个文件各自获取上传凭证并上传，最多同时上传 {@link BatchUploadOptions#concurrency} 个文件；
+ * 单个文件失败后按指数退避重试，重试后仍然失败只记录在它的 {@link UploadResult} 里，不影响其他文件。
+ * 每次上传都提交到 {@link Lane#BULK}，一个文件结束后再提交下一个；重试通过 {@link Global#schedule(Runnable, long)} 延后提交，
+ * 等待期间不占用线程
+ */
+final class BatchUpload {
+
+    /**
+     * 两次重试之间最多等待的时间
+     */
+    static final long MAX_RETRY_DELAY_MILLS = 30 * 1000;
+
+    private final List<UploadSource> sources;
+    private final BatchUploadOptions options;
+    private final long totalLength;
+    private final AtomicLong transferred = new AtomicLong();
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger remaining;
+    private final List<Task<String>> tasks;
+    private final Task<List<UploadResult>> result = new Task<>();
+
+    BatchUpload(@NonNull List<UploadSource> sources, @NonNull BatchUploadOptions options) {
+        this.sources = sources;
+        this.options = options;
+        long total = 0;
+        for (UploadSource source : sources) {
+            total += source.length();
+        }
+        this.totalLength = total;
+        this.remaining = new AtomicInteger(sources.size());
+        this.tasks = new ArrayList<>(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+            tasks.add(new Task<String>());
+        }
+    }
+
+    /**
+     * 开始上传，不阻塞当前线程；取消返回的 Task 会中止所有文件的上传
+     * @return 所有文件结束后以与 sources 顺序一致的结果结束
+     */
+    Task<List<UploadResult>> start() {
+        if (sources.isEmpty()) {
+            result.complete(Collections.<UploadResult>emptyList());
+            return result;
+        }
+        result.addCancelHook(new Runnable() {
+            @Override
+            public void run() {
+                for (Task<String> task : tasks) {
+                    task.cancel(true);
+                }
+            }
+        });
+        for (int i = 0; i < Math.max(1, Math.min(options.concurrency, sources.size())); i++) {
+            startNext();
+        }
+        return result;
+    }
+
+    /**
+     * 阻塞直到所有文件结束；在 {@link Task} 中执行时，Task 被取消会中止所有文件的上传
+     * @return 与 sources 的顺序一致
+     */
+    List<UploadResult> upload() throws Exception {
+        final Task<List<UploadResult>> task = start();
+        Runnable cancelHook = new Runnable() {
+            @Override
+            public void run() {
+                task.cancel(true);
+            }
+        };
+        Task<?> current = Task.current();
+        if (current != null) {
+            current.addCancelHook(cancelHook);
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } finally {
+            if (current != null) {
+                current.removeCancelHook(cancelHook);
+            }
+        }
+    }
+
+    private void startNext() {
+        final int i = next.getAndIncrement();
+        if (i >= sources.size()) {
+            return;
+        }
+        Task<String> task = tasks.get(i);
+        task.addListener(new Task.Listener<String>() {
+            @Override
+            public void onDone(@NonNull Task<String> t) {
+                if (remaining.decrementAndGet() == 0) {
+                    finish();
+                } else {
+                    startNext();
+                }
+            }
+        });
+        ProgressListener listener = options.listener != null ? new ItemProgress() : null;
+        attempt(sources.get(i), task, listener, 0);
+    }
+
+    /**
+     * 上传一次，网络错误和 5xx 会按指数退避重试，重试时这个文件的进度从 0 开始
+     */
+    private void attempt(final UploadSource source, final Task<String> task, final ProgressListener listener, final int attempt) {
+        if (task.isDone()) {
+            return;
+        }
+        final Task<String> upload = Task.submit(Lane.BULK, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return Storage._uploadFile(source.getFilename(), source.getCategoryId(), source.body(listener)).getId();
+            }
+        });
+        final Runnable cancelUpload = new Runnable() {
+            @Override
+            public void run() {
+                upload.cancel(true);
+            }
+        };
+        task.addCancelHook(cancelUpload);
+        upload.addListener(new Task.Listener<String>() {
+            @Override
+            public void onDone(@NonNull Task<String> t) {
+                task.removeCancelHook(cancelUpload);
+                if (t.isSuccessful()) {
+                    task.complete(t.getResult());
+                    return;
+                }
+                Throwable error = t.getError();
+                if (task.isDone() || attempt >= options.maxRetries || !isRetryable(error)) {
+                    task.completeExceptionally(error);
+                    return;
+                }
+                if (listener != null) {
+                    listener.onProgress(0, source.length());
+                }
+                final ScheduledFuture<?> retry = Global.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        attempt(source, task, listener, attempt + 1);
+                    }
+                }, retryDelay(options.retryDelayMills, attempt));
+                task.addCancelHook(new Runnable() {
+                    @Override
+                    public void run() {
+                        retry.cancel(false);
+                    }
+                });
+            }
+        });
+    }
+
+    private void finish() {
+        List<UploadResult> results = new ArrayList<>(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+            Task<String> task = tasks.get(i);
+            Throwable error = task.isCancelled() ? new CancellationException() : task.getError();
+            results.add(new UploadResult(sources.get(i), task.getResult(), error));
+        }
+        result.complete(results);
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        if (error instanceof HttpException) {
+            return ((HttpException) error).getCode() >= 500;
+        }
+        return error instanceof IOException;
+    }
+
+    /**
+     * 第 attempt 次失败后的等待时间：retryDelayMills 每次翻倍，最多 {@link #MAX_RETRY_DELAY_MILLS}
+     */
+    static long retryDelay(long retryDelayMills, int attempt) {
+        long delay = Math.max(0, retryDelayMills);
+        for (int i = 0; i < attempt && delay < MAX_RETRY_DELAY_MILLS; i++) {
+            delay <<= 1;
+        }
+        return Math.min(delay, MAX_RETRY_DELAY_MILLS);
+    }
+
+    /**
+     * 把单个文件的进度累加到总进度，同一个文件的进度只会在一个线程中回调
+     */
+    private class ItemProgress implements ProgressListener {
+
+        private long reported = 0;
+
+        @Override
+        public void onProgress(long bytesTransferred, long contentLength) {
+            long delta = bytesTransferred - reported;
+            reported = bytesTransferred;
+            if (delta != 0) {
+                report(transferred.addAndGet(delta));
+            }
+        }
+    }
+
+    private void report(long bytes) {
+        ProgressListener listener = options.listener;
+        if (listener != null) {
+            listener.onProgress(bytes, totalLength);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.minapp.android.sdk.storage;
+
+import com.minapp.android.sdk.util.ProgressListener;
+
+/**
+ * 批量上传的配置
+ * @see Storage#uploadFiles(java.util.Collection, BatchUploadOptions)
+ */
+public class BatchUploadOptions {
+
+    /**
+     * 同时上传的文件数
+     */
+    public int concurrency = 3;
+
+    /**
+     * 每个文件失败后的重试次数，只重试网络错误和 5xx
+     */
+    public int maxRetries = 2;
+
+    /**
+     * 第一次重试前等待的时间（毫秒），之后每次翻倍，最多 30 秒
+     */
+    public long retryDelayMills = 1000;
+
+    /**
+     * 所有文件合计的上传进度，contentLength 为所有文件的总字节数；
+     * 会在多个上传线程中回调，可以为 null
+     */
+    public ProgressListener listener;
+
+}
@@ -0,0 +1,182 @@
+package com.minapp.android.sdk.storage;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.minapp.android.sdk.Const;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 下载文件的磁盘缓存，以 {@link CloudFile#getId()} 为 key（同一个 id 的文件内容不会改变）：
+ * 下载中的文件保存为 key.part，用于断点续传，下载完成后重命名为 key；
+ * 按文件的总大小计算容量（包括未完成的 .part），超出后按最近使用时间（lastModified）淘汰
+ * @see com.minapp.android.sdk.Config#setDownloadCacheSize(long)
+ */
+public class DownloadCache {
+
+    static final String PART_SUFFIX = ".part";
+
+    private final File dir;
+    private final long maxBytes;
+    private final Set<String> downloading = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Object[] locks = new Object[16];
+
+    public DownloadCache(@NonNull File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * @return 已经下载完成的文件，没有时返回 null；命中时更新它的最近使用时间
+     */
+    public @Nullable File get(@NonNull String fileId) {
+        File file = new File(dir, key(fileId));
+        if (!file.isFile()) {
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    public void remove(@NonNull String fileId) {
+        new File(dir, key(fileId)).delete();
+        new File(dir, key(fileId) + PART_SUFFIX).delete();
+    }
+
+    /**
+     * 删除所有缓存，不包括正在下载的文件
+     */
+    public void clear() {
+        for (File file : files()) {
+            if (!downloading.contains(keyOf(file))) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * @return 缓存的总字节数
+     */
+    public long size() {
+        long size = 0;
+        for (File file : files()) {
+            size += file.length();
+        }
+        return size;
+    }
+
+    public long maxSize() {
+        return maxBytes;
+    }
+
+
+    /*************************** package method ***********************************/
+
+
+    /**
+     * 同一个 id 的下载需要串行，避免同时写一个 .part
+     */
+    Object lock(@NonNull String fileId) {
+        return locks[(fileId.hashCode() & Integer.MAX_VALUE) % locks.length];
+    }
+
+    /**
+     * 开始下载，下载期间 .part 不会被淘汰
+     * @return 用于断点续传的 .part 文件，可能已经有部分内容
+     */
+    File begin(@NonNull String fileId) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("can not create " + dir);
+        }
+        downloading.add(key(fileId));
+        return new File(dir, key(fileId) + PART_SUFFIX);
+    }
+
+    /**
+     * 下载完成，把 .part 重命名为正式的文件，然后淘汰超出容量的缓存
+     */
+    File commit(@NonNull String fileId, @NonNull File part) throws IOException {
+        File file = new File(dir, key(fileId));
+        if (!part.renameTo(file)) {
+            throw new IOException("can not rename " + part + " to " + file);
+        }
+        trim(key(fileId));
+        return file;
+    }
+
+    /**
+     * 下载结束（成功或失败），失败时保留 .part 用于下次续传
+     */
+    void end(@NonNull String fileId) {
+        downloading.remove(key(fileId));
+    }
+
+
+    /*************************** private method ***********************************/
+
+
+    /**
+     * 从最久没有使用的文件开始删除，直到不超过容量；正在下载的和刚下载完成的文件不会被删除
+     */
+    private void trim(String keep) {
+        List<File> files = Arrays.asList(files());
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= maxBytes) {
+            return;
+        }
+
+        Collections.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long diff = a.lastModified() - b.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        for (File file : files) {
+            if (size <= maxBytes) {
+                break;
+            }
+            String key = keyOf(file);
+            if (key.equals(keep) || downloading.contains(key)) {
+                continue;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+            } else {
+                Log.w(Const.TAG, "can not delete " + file);
+            }
+        }
+    }
+
+    private File[] files() {
+        File[] files = dir.listFiles();
+        return files != null ? files : new File[0];
+    }
+
+    private static String keyOf(File file) {
+        String name = file.getName();
+        return name.endsWith(PART_SUFFIX) ? name.substring(0, name.length() - PART_SUFFIX.length()) : name;
+    }
+
+    /**
+     * id 只包含字母和数字，以防万一替换掉其他字符
+     */
+    private static String key(String fileId) {
+        return fileId.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+}
@@ -0,0 +1,127 @@
+package com.minapp.android.sdk.storage;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.minapp.android.sdk.Global;
+import com.minapp.android.sdk.exception.HttpException;
+import com.minapp.android.sdk.util.ProgressListener;
+import com.minapp.android.sdk.util.Task;
+import com.minapp.android.sdk.util.Util;
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 下载 {@link CloudFile#getPath()} 到 {@link DownloadCache}：
+ * 以流的方式写入磁盘，不会把整个文件读入内存；上次没有下载完成时，用 Range 请求从 .part 的末尾继续
+ */
+final class FileDownload {
+
+    static final String HEADER_RANGE = "Range";
+    private static final long SEGMENT_SIZE = 8192;
+
+    private final DownloadCache cache;
+    private final String fileId;
+    private final String url;
+    private final @Nullable ProgressListener listener;
+
+    FileDownload(@NonNull DownloadCache cache, @NonNull String fileId, @NonNull String url, @Nullable ProgressListener listener) {
+        this.cache = cache;
+        this.fileId = fileId;
+        this.url = url;
+        this.listener = listener;
+    }
+
+    /**
+     * 在 {@link Task} 中执行时，Task 被取消会中止下载，已下载的部分保留在 .part 里
+     */
+    File download() throws Exception {
+        synchronized (cache.lock(fileId)) {
+            File cached = cache.get(fileId);
+            if (cached != null) {
+                return cached;
+            }
+
+            File part = cache.begin(fileId);
+            try {
+                if (!transfer(part, part.length())) {
+                    // .part 已经不可用（比如比服务器上的文件还大），从头下载
+                    part.delete();
+                    if (!transfer(part, 0)) {
+                        throw new IOException("range not satisfiable: " + url);
+                    }
+                }
+                return cache.commit(fileId, part);
+            } finally {
+                cache.end(fileId);
+            }
+        }
+    }
+
+    /**
+     * @return 服务器返回 416 时返回 false
+     */
+    private boolean transfer(File part, long offset) throws IOException {
+        Request.Builder builder = new Request.Builder().url(url);
+        if (offset > 0) {
+            builder.header(HEADER_RANGE, "bytes=" + offset + "-");
+        }
+        final Call call = Global.storageHttpClient().newCall(builder.build());
+        Runnable cancelHook = new Runnable() {
+            @Override
+            public void run() {
+                call.cancel();
+            }
+        };
+        Task<?> task = Task.current();
+        if (task != null) {
+            task.addCancelHook(cancelHook);
+        }
+
+        Response response = null;
+        BufferedSink sink = null;
+        try {
+            response = call.execute();
+            if (response.code() == 416) {
+                return false;
+            }
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new HttpException(response.code(), body != null ? body.string() : null);
+            }
+
+            // 服务器不支持 Range 时返回 200 和完整的文件
+            boolean append = offset > 0 && response.code() == 206;
+            long transferred = append ? offset : 0;
+            long contentLength = body.contentLength() >= 0 ? transferred + body.contentLength() : -1;
+            sink = Okio.buffer(append ? Okio.appendingSink(part) : Okio.sink(part));
+            BufferedSource source = body.source();
+            long read;
+            while ((read = source.read(sink.buffer(), SEGMENT_SIZE)) != -1) {
+                transferred += read;
+                sink.emitCompleteSegments();
+                if (listener != null) {
+                    listener.onProgress(transferred, contentLength);
+                }
+            }
+            sink.flush();
+            if (contentLength >= 0 && transferred != contentLength) {
+                throw new IOException("unexpected end of stream: " + transferred + "/" + contentLength);
+            }
+            return true;
+        } finally {
+            Util.closeQuietly(sink);
+            Util.closeQuietly(response);
+            if (task != null) {
+                task.removeCancelHook(cancelHook);
+            }
+        }
+    }
+}
@@ -5,21 +5,26 @@ import androidx.annotation.Nullable;
 
 import com.minapp.android.sdk.Global;
 import com.minapp.android.sdk.database.query.Query;
-import com.minapp.android.sdk.exception.HttpException;
 import com.minapp.android.sdk.storage.model.BatchDeleteReq;
 import com.minapp.android.sdk.storage.model.UploadInfoReq;
 import com.minapp.android.sdk.storage.model.UploadInfoResp;
 import com.minapp.android.sdk.util.BaseCallback;
+import com.minapp.android.sdk.util.FileRequestBody;
+import com.minapp.android.sdk.util.Function;
 import com.minapp.android.sdk.util.InputStreamRequestBody;
+import com.minapp.android.sdk.util.Lane;
 import com.minapp.android.sdk.util.PagedList;
+import com.minapp.android.sdk.util.ProgressListener;
 import com.minapp.android.sdk.util.Util;
+import com.minapp.android.sdk.util.Task;
 import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
 
-import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.InputStream;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 public abstract class Storage {
 
@@ -32,18 +37,19 @@ public abstract class Storage {
      * 1. 获取上传文件所需授权凭证和上传地址<br />
      * 2. 使用上一步获取的授权凭证和上传地址，进行文件上传
      */
-    private static UploadInfoResp _uploadFile(
+    static UploadInfoResp _uploadFile(
             String filename,
             String categoryId,
-            InputStream in
+            RequestBody file
     ) throws Exception {
         UploadInfoReq body = new UploadInfoReq();
         body.setFileName(filename);
         body.setCategoryId(categoryId);
 
-        int size = in.available();
+        // 长度未知时为 -1
+        long size = file.contentLength();
         if (size / 1024 / 1024 > 100) {
-            body.setFileSize(size);
+            body.setFileSize((int) Math.min(size, Integer.MAX_VALUE));
         }
 
         UploadInfoResp meta = Global.httpApi().getUploadMeta(body).execute().body();
@@ -52,7 +58,7 @@ public abstract class Storage {
                 .setType(MultipartBody.FORM)
                 .addFormDataPart(PART_AUTHORIZATION, meta.getAuthorization())
                 .addFormDataPart(PART_POLICY, meta.getPolicy())
-                .addFormDataPart(PART_FILE, filename, new InputStreamRequestBody(in))
+                .addFormDataPart(PART_FILE, filename, file)
                 .build();
         Global.uploadHttpApi().uploadFile(meta.getUploadUrl(), multipartBody).execute();
         return meta;
@@ -67,7 +73,7 @@ public abstract class Storage {
             String categoryId,
             InputStream in
     ) throws Exception {
-        return _uploadFile(filename, categoryId, in).getId();
+        return _uploadFile(filename, categoryId, new InputStreamRequestBody(in)).getId();
     }
 
     /**
@@ -79,13 +85,7 @@ public abstract class Storage {
             String categoryId,
             byte[] data
     ) throws Exception {
-        InputStream in = null;
-        try {
-            in = new ByteArrayInputStream(data);
-            return uploadFileWithoutFetch(filename, categoryId, in);
-        } finally {
-            Util.closeQuietly(in);
-        }
+        return _uploadFile(filename, categoryId, RequestBody.create(null, data)).getId();
     }
 
     /**
@@ -96,13 +96,45 @@ public abstract class Storage {
         return uploadFileWithoutFetch(filename, null, data);
     }
 
+    /**
+     * 上传本地文件，以流的方式从磁盘读取，不会把整个文件读入内存
+     * @param listener 上传进度，在后台线程回调，可以为 null
+     * @return {@link CloudFile#getId()}
+     */
+    public static String uploadFileWithoutFetch(
+            @NonNull File file,
+            String categoryId,
+            @Nullable ProgressListener listener
+    ) throws Exception {
+        Util.assetNotNull(file);
+        return _uploadFile(file.getName(), categoryId, new FileRequestBody(null, file, listener)).getId();
+    }
+
+    /**
+     * 上传本地文件
+     * @param cb 拿到 {@link CloudFile#getId()}
+     * @see #uploadFileWithoutFetch(File, String, ProgressListener)
+     */
+    public static Task<String> uploadFileWithoutFetchInBackground(
+            @NonNull final File file,
+            final String categoryId,
+            @Nullable final ProgressListener listener,
+            @NonNull BaseCallback<String> cb) {
+        return Util.inBackground(Lane.BULK, cb, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return Storage.uploadFileWithoutFetch(file, categoryId, listener);
+            }
+        });
+    }
+
     /**
      * 文件上传
      * @param cb 拿到 {@link CloudFile#getId()}
      */
-    public static void uploadFileWithoutFetchInBackground(
+    public static Task<String> uploadFileWithoutFetchInBackground(
             final String filename, final String categoryId, final byte[] data, @NonNull final BaseCallback<String> cb) {
-        Util.inBackground(cb, new Callable<String>() {
+        return Util.inBackground(Lane.BULK, cb, new Callable<String>() {
             @Override
             public String call() throws Exception {
                 return Storage.uploadFileWithoutFetch(filename, categoryId, data);
@@ -110,22 +142,111 @@ public abstract class Storage {
         });
     }
 
+    /**
+     * 批量上传，最多同时上传 {@link BatchUploadOptions#concurrency} 个文件；
+     * 单个文件失败后会重试，重试后仍然失败不会抛出异常，而是记录在对应的 {@link UploadResult} 里
+     * @param options 为 null 时使用默认配置
+     * @return 与 sources 的顺序一致
+     */
+    public static List<UploadResult> uploadFiles(
+            @NonNull Collection<UploadSource> sources,
+            @Nullable BatchUploadOptions options
+    ) throws Exception {
+        Util.assetNotNull(sources);
+        return new BatchUpload(new ArrayList<>(sources), options != null ? options : new BatchUploadOptions()).upload();
+    }
+
+    /**
+     * 批量上传，取消返回的 Task 会中止所有文件的上传；等待期间不占用线程
+     * @see #uploadFiles(Collection, BatchUploadOptions)
+     */
+    public static Task<List<UploadResult>> uploadFilesInBackground(
+            @NonNull Collection<UploadSource> sources,
+            @Nullable BatchUploadOptions options,
+            @NonNull BaseCallback<List<UploadResult>> cb) {
+        Util.assetNotNull(sources);
+        Task<List<UploadResult>> task =
+                new BatchUpload(new ArrayList<>(sources), options != null ? options : new BatchUploadOptions()).start();
+        return Util.deliver(task, cb);
+    }
+
     public static @Nullable CloudFile uploadFile(
             String filename,
             String categoryId,
             InputStream in
     ) throws Exception {
-        UploadInfoResp meta = _uploadFile(filename, categoryId, in);
-        while (true) {
-            try {
-                return file(meta.getId());
-            } catch (HttpException e) {
-                if (e.getCode() == 404) {
-                    Thread.sleep(500);
-                } else {
-                    throw e;
-                }
+        return await(fetchUploaded(_uploadFile(filename, categoryId, new InputStreamRequestBody(in))));
+    }
+
+    /**
+     * 上传本地文件并获取文件信息
+     * @param listener 上传进度，在后台线程回调，可以为 null
+     * @see #uploadFileWithoutFetch(File, String, ProgressListener)
+     */
+    public static @Nullable CloudFile uploadFile(
+            @NonNull File file,
+            String categoryId,
+            @Nullable ProgressListener listener
+    ) throws Exception {
+        Util.assetNotNull(file);
+        return await(fetchUploaded(_uploadFile(file.getName(), categoryId, new FileRequestBody(null, file, listener))));
+    }
+
+    /**
+     * 上传本地文件并获取文件信息，上传完成后等待文件信息时不占用线程
+     * @param cb 拿到 {@link CloudFile}
+     * @see #uploadFile(File, String, ProgressListener)
+     */
+    public static Task<CloudFile> uploadFileAndFetchInBackground(
+            @NonNull final File file,
+            final String categoryId,
+            @Nullable final ProgressListener listener,
+            @NonNull BaseCallback<CloudFile> cb) {
+        return uploadAndFetchInBackground(new Callable<UploadInfoResp>() {
+            @Override
+            public UploadInfoResp call() throws Exception {
+                Util.assetNotNull(file);
+                return _uploadFile(file.getName(), categoryId, new FileRequestBody(null, file, listener));
             }
+        }, cb);
+    }
+
+    /**
+     * 在 {@link Lane#BULK} 中上传，然后异步获取文件信息
+     */
+    private static Task<CloudFile> uploadAndFetchInBackground(Callable<UploadInfoResp> upload, BaseCallback<CloudFile> cb) {
+        Task<CloudFile> task = Task.submit(Lane.BULK, upload).then(new Function<UploadInfoResp, Task<CloudFile>>() {
+            @Override
+            public Task<CloudFile> on(UploadInfoResp uploaded) {
+                return fetchUploaded(uploaded);
+            }
+        });
+        return Util.deliver(task, cb);
+    }
+
+    /**
+     * 上传完成后，文件信息可能还没有写入，404 时按指数退避重试，一直 404 时以 {@link java.util.concurrent.TimeoutException} 结束
+     * @see UploadedFileFetcher
+     */
+    private static Task<CloudFile> fetchUploaded(UploadInfoResp uploaded) {
+        return UploadedFileFetcher.fetch(uploaded.getId());
+    }
+
+    /**
+     * 同步等待 task 结束，线程被中断时取消 task
+     */
+    private static CloudFile await(Task<CloudFile> task) throws Exception {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
         }
     }
 
@@ -134,13 +255,7 @@ public abstract class Storage {
             String categoryId,
             byte[] data
     ) throws Exception {
-        InputStream in = null;
-        try {
-            in = new ByteArrayInputStream(data);
-            return uploadFile(filename, categoryId, in);
-        } finally {
-            Util.closeQuietly(in);
-        }
+        return await(fetchUploaded(_uploadFile(filename, categoryId, RequestBody.create(null, data))));
     }
 
     public static CloudFile uploadFile(String filename, byte[] data) throws Exception {
@@ -151,16 +266,55 @@ public abstract class Storage {
      * 文件上传
      * @param cb 拿到 {@link CloudFile}
      */
-    public static void uploadFileAndFetchInBackground(
+    public static Task<CloudFile> uploadFileAndFetchInBackground(
             final String filename, final String categoryId, final byte[] data, @NonNull final BaseCallback<CloudFile> cb) {
-        Util.inBackground(cb, new Callable<CloudFile>() {
+        return uploadAndFetchInBackground(new Callable<UploadInfoResp>() {
             @Override
-            public CloudFile call() throws Exception {
-                return Storage.uploadFile(filename, categoryId, data);
+            public UploadInfoResp call() throws Exception {
+                return _uploadFile(filename, categoryId, RequestBody.create(null, data));
             }
-        });
+        }, cb);
+    }
+
+
+    /**
+     * 下载文件到磁盘缓存，以 {@link CloudFile#getId()} 为 key，已经下载过的文件直接返回；
+     * 以流的方式写入磁盘，上次没有下载完成时从断点继续
+     * @param listener 下载进度，在后台线程回调，可以为 null
+     * @return 缓存中的文件，可能会被 LRU 淘汰，需要长期保存时请复制一份
+     * @see com.minapp.android.sdk.Config#setDownloadCacheSize(long)
+     */
+    public static File download(@NonNull CloudFile file, @Nullable ProgressListener listener) throws Exception {
+        Util.assetNotNull(file);
+        String id = file.getId();
+        String url = file.getPath();
+        if (id == null || url == null) {
+            throw new IllegalArgumentException("CloudFile without id or path");
+        }
+        DownloadCache cache = Global.downloadCache();
+        if (cache == null) {
+            throw new IllegalStateException("BaaS is not initialized");
+        }
+        return new FileDownload(cache, id, url, listener).download();
     }
 
+    public static File download(@NonNull CloudFile file) throws Exception {
+        return download(file, null);
+    }
+
+    /**
+     * 下载文件，取消返回的 Task 会中止下载，已下载的部分可以在下次下载时继续使用
+     * @see #download(CloudFile, ProgressListener)
+     */
+    public static Task<File> downloadInBackground(
+            @NonNull final CloudFile file, @Nullable final ProgressListener listener, @NonNull BaseCallback<File> cb) {
+        return Util.inBackground(Lane.BULK, cb, new Callable<File>() {
+            @Override
+            public File call() throws Exception {
+                return Storage.download(file, listener);
+            }
+        });
+    }
 
     /**
      * 文件信息
@@ -172,13 +326,8 @@ public abstract class Storage {
         return Global.httpApi().file(id).execute().body();
     }
 
-    public static void fileInBackground(final String id, @NonNull BaseCallback<CloudFile> cb) {
-        Util.inBackground(cb, new Callable<CloudFile>() {
-            @Override
-            public CloudFile call() throws Exception {
-                return Storage.file(id);
-            }
-        });
+    public static Task<CloudFile> fileInBackground(final String id, @NonNull BaseCallback<CloudFile> cb) {
+        return Util.enqueue(Global.httpApi().file(id), Util.<CloudFile>identity(), cb);
     }
 
 
@@ -191,13 +340,8 @@ public abstract class Storage {
     }
 
 
-    public static void filesInBackground(final Query query, @NonNull BaseCallback<PagedList<CloudFile>> cb) {
-        Util.inBackground(cb, new Callable<PagedList<CloudFile>>() {
-            @Override
-            public PagedList<CloudFile> call() throws Exception {
-                return Storage.files(query);
-            }
-        });
+    public static Task<PagedList<CloudFile>> filesInBackground(final Query query, @NonNull BaseCallback<PagedList<CloudFile>> cb) {
+        return Util.enqueue(Global.httpApi().files(query != null ? query : new Query()), Util.<CloudFile>readonlyPage(), cb);
     }
 
     /**
@@ -217,8 +361,8 @@ public abstract class Storage {
         }
     }
 
-    public static void deleteFilesInBackground(final Collection<String> ids, @NonNull BaseCallback<Void> cb) {
-        Util.inBackground(cb, new Callable<Void>() {
+    public static Task<Void> deleteFilesInBackground(final Collection<String> ids, @NonNull BaseCallback<Void> cb) {
+        return Util.inBackground(cb, new Callable<Void>() {
             @Override
             public Void call() throws Exception {
                 Storage.deleteFiles(ids);
@@ -237,13 +381,8 @@ public abstract class Storage {
         return Global.httpApi().fileCategory(id).execute().body();
     }
 
-    public static void categoryInBackground(final String id, @NonNull BaseCallback<FileCategory> cb) {
-        Util.inBackground(cb, new Callable<FileCategory>() {
-            @Override
-            public FileCategory call() throws Exception {
-                return Storage.category(id);
-            }
-        });
+    public static Task<FileCategory> categoryInBackground(final String id, @NonNull BaseCallback<FileCategory> cb) {
+        return Util.enqueue(Global.httpApi().fileCategory(id), Util.<FileCategory>identity(), cb);
     }
 
     /**
@@ -255,13 +394,8 @@ public abstract class Storage {
         return Global.httpApi().fileCategories(query).execute().body().readonly();
     }
 
-    public static void categoriesInBackground(final Query query, @NonNull BaseCallback<PagedList<FileCategory>> cb) {
-        Util.inBackground(cb, new Callable<PagedList<FileCategory>>() {
-            @Override
-            public PagedList<FileCategory> call() throws Exception {
-                return Storage.categories(query);
-            }
-        });
+    public static Task<PagedList<FileCategory>> categoriesInBackground(final Query query, @NonNull BaseCallback<PagedList<FileCategory>> cb) {
+        return Util.enqueue(Global.httpApi().fileCategories(query), Util.<FileCategory>readonlyPage(), cb);
     }
 
 }
@@ -0,0 +1,42 @@
+package com.minapp.android.sdk.storage;
+
+import androidx.annotation.Nullable;
+
+/**
+ * 批量上传中一个文件的结果
+ * @see Storage#uploadFiles(java.util.Collection, BatchUploadOptions)
+ */
+public class UploadResult {
+
+    private final UploadSource source;
+    private final @Nullable String id;
+    private final @Nullable Throwable error;
+
+    UploadResult(UploadSource source, @Nullable String id, @Nullable Throwable error) {
+        this.source = source;
+        this.id = id;
+        this.error = error;
+    }
+
+    public UploadSource getSource() {
+        return source;
+    }
+
+    /**
+     * @return 上传成功时为 {@link CloudFile#getId()}，否则为 null
+     */
+    public @Nullable String getId() {
+        return id;
+    }
+
+    /**
+     * @return 重试后仍然失败的原因，成功时为 null
+     */
+    public @Nullable Throwable getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
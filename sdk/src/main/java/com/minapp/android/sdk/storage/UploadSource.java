@@ -0,0 +1,101 @@
+package com.minapp.android.sdk.storage;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.minapp.android.sdk.Assert;
+import com.minapp.android.sdk.util.FileRequestBody;
+import com.minapp.android.sdk.util.ProgressListener;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 批量上传中的一个文件，本地文件或者内存中的数据
+ * @see Storage#uploadFiles(java.util.Collection, BatchUploadOptions)
+ */
+public class UploadSource {
+
+    private static final int SEGMENT_SIZE = 8192;
+
+    private final @Nullable File file;
+    private final @Nullable byte[] data;
+    private final String filename;
+    private final @Nullable String categoryId;
+
+    /**
+     * 上传本地文件，以流的方式从磁盘读取
+     */
+    public UploadSource(@NonNull File file, @Nullable String categoryId) {
+        Assert.notNull(file, "file");
+        this.file = file;
+        this.data = null;
+        this.filename = file.getName();
+        this.categoryId = categoryId;
+    }
+
+    public UploadSource(@NonNull String filename, @NonNull byte[] data, @Nullable String categoryId) {
+        Assert.notNull(filename, "filename");
+        Assert.notNull(data, "data");
+        this.file = null;
+        this.data = data;
+        this.filename = filename;
+        this.categoryId = categoryId;
+    }
+
+    public @Nullable File getFile() {
+        return file;
+    }
+
+    public @Nullable byte[] getData() {
+        return data;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public @Nullable String getCategoryId() {
+        return categoryId;
+    }
+
+    /**
+     * 字节数
+     */
+    public long length() {
+        return file != null ? file.length() : data.length;
+    }
+
+    /**
+     * 每次上传（包括重试）都需要一个新的请求体
+     */
+    RequestBody body(@Nullable final ProgressListener listener) {
+        if (file != null) {
+            return new FileRequestBody(null, file, listener);
+        }
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return null;
+            }
+
+            @Override
+            public long contentLength() {
+                return data.length;
+            }
+
+            @Override
+            public void writeTo(@NonNull BufferedSink sink) throws IOException {
+                for (int offset = 0; offset < data.length; offset += SEGMENT_SIZE) {
+                    int count = Math.min(SEGMENT_SIZE, data.length - offset);
+                    sink.write(data, offset, count);
+                    if (listener != null) {
+                        listener.onProgress(offset + count, data.length);
+                    }
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,97 @@
+package com.minapp.android.sdk.storage;
+
+import androidx.annotation.NonNull;
+import com.minapp.android.sdk.Const;
+import com.minapp.android.sdk.Global;
+import com.minapp.android.sdk.auth.CheckedCall;
+import com.minapp.android.sdk.exception.HttpException;
+import com.minapp.android.sdk.util.Task;
+import com.minapp.android.sdk.util.Util;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 上传完成后获取文件信息：文件信息可能还没有写入，404 时按指数退避重试（{@link Const#UPLOAD_FETCH_INITIAL_DELAY}
+ * 起每次翻倍，不超过 {@link Const#UPLOAD_FETCH_MAX_DELAY}）；超过 {@link Const#UPLOAD_FETCH_MAX_WAIT}
+ * 仍然 404 时以 {@link TimeoutException} 结束（文件已经上传，可以稍后用文件 id 再获取）。
+ * 请求通过 enqueue 发起，等待期间不占用线程
+ */
+final class UploadedFileFetcher implements Runnable, Callback<CloudFile> {
+
+    private final Task<CloudFile> task = new Task<>();
+    private final String id;
+    private final long deadline;
+    private long delay = Const.UPLOAD_FETCH_INITIAL_DELAY;
+    private volatile CheckedCall<CloudFile> call;
+    private volatile ScheduledFuture<?> timer;
+
+    private UploadedFileFetcher(String id) {
+        this.id = id;
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Const.UPLOAD_FETCH_MAX_WAIT);
+    }
+
+    /**
+     * @param id {@link CloudFile#getId()}
+     * @return 取消时会取消正在执行的请求和等待中的重试
+     */
+    static Task<CloudFile> fetch(@NonNull String id) {
+        final UploadedFileFetcher fetcher = new UploadedFileFetcher(id);
+        fetcher.task.addCancelHook(new Runnable() {
+            @Override
+            public void run() {
+                fetcher.cancel();
+            }
+        });
+        fetcher.run();
+        return fetcher.task;
+    }
+
+    @Override
+    public void run() {
+        if (task.isDone()) {
+            return;
+        }
+        call = Global.httpApi().file(id);
+        call.enqueue(this, Util.directExecutor());
+    }
+
+    @Override
+    public void onResponse(Call<CloudFile> c, Response<CloudFile> resp) {
+        task.complete(resp.body());
+    }
+
+    @Override
+    public void onFailure(Call<CloudFile> c, Throwable t) {
+        if (!(t instanceof HttpException) || ((HttpException) t).getCode() != 404) {
+            task.completeExceptionally(t);
+            return;
+        }
+
+        if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay) > deadline) {
+            task.completeExceptionally(new TimeoutException(
+                    "file " + id + " is uploaded but not found after " + Const.UPLOAD_FETCH_MAX_WAIT + "ms"));
+            return;
+        }
+        timer = Global.schedule(this, delay);
+        delay = Math.min(delay * 2, Const.UPLOAD_FETCH_MAX_DELAY);
+        if (task.isDone()) {
+            timer.cancel(false);
+        }
+    }
+
+    private void cancel() {
+        ScheduledFuture<?> timer = this.timer;
+        if (timer != null) {
+            timer.cancel(false);
+        }
+        CheckedCall<CloudFile> call = this.call;
+        if (call != null) {
+            call.cancel();
+        }
+    }
+}
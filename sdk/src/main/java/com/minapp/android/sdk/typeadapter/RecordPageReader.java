@@ -0,0 +1,119 @@
+package com.minapp.android.sdk.typeadapter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.gson.JsonObject;
+import com.google.gson.internal.bind.TypeAdapters;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.minapp.android.sdk.Global;
+import com.minapp.android.sdk.database.Record;
+import com.minapp.android.sdk.database.query.Query;
+import com.minapp.android.sdk.util.PagedListResponse;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 以流的方式解析 queryRecord 返回的分页数据，直接从 token 流构建每条记录的 {@link JsonObject}，
+ * 不在 {@link Query#KEYS} 里的字段调用 {@link JsonReader#skipValue()} 跳过，不会为其分配对象
+ */
+public abstract class RecordPageReader {
+
+    static final String META = "meta";
+    static final String OBJECTS = "objects";
+
+    /**
+     * 从 {@link Query#KEYS} 中得到需要保留的字段
+     * @return 没有指定 keys，或者使用的是「规定不返回」（-field）时返回 null，表示保留所有字段
+     */
+    public static @Nullable Set<String> projection(@Nullable Query query) {
+        String keys = query != null ? query.get(Query.KEYS) : null;
+        if (keys == null || keys.isEmpty()) {
+            return null;
+        }
+
+        Set<String> projection = new HashSet<>();
+        for (String key : keys.split(",")) {
+            key = key.trim();
+            if (key.isEmpty()) {
+                continue;
+            }
+            if (key.startsWith("-")) {
+                return null;
+            }
+            projection.add(key);
+        }
+        if (projection.isEmpty()) {
+            return null;
+        }
+        projection.add(Record.ID);
+        return projection;
+    }
+
+    /**
+     * 解析一页数据
+     * @param projection 为 null 时保留所有字段
+     */
+    public static @NonNull PagedListResponse<Record> read(
+            @NonNull Reader reader, @Nullable Set<String> projection) throws IOException {
+        JsonReader in = new JsonReader(reader);
+        in.setLenient(true);
+
+        PagedListResponse<Record> page = new PagedListResponse<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (META.equals(name)) {
+                page.setMeta(Global.gson().getAdapter(PagedListResponse.Meta.class).read(in));
+            } else if (OBJECTS.equals(name) && in.peek() == JsonToken.BEGIN_ARRAY) {
+                List<Record> objects = new ArrayList<>();
+                in.beginArray();
+                while (in.hasNext()) {
+                    JsonObject json = readObject(in, projection);
+                    if (json != null) {
+                        Record record = new Record();
+                        record._setJson(json);
+                        objects.add(record);
+                    }
+                }
+                in.endArray();
+                page.setObjects(objects);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return page;
+    }
+
+    /**
+     * 读取一个 json object
+     * @param projection 为 null 时保留所有字段
+     * @return json 为 null 时返回 null
+     */
+    public static @Nullable JsonObject readObject(
+            @NonNull JsonReader in, @Nullable Set<String> projection) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        JsonObject json = new JsonObject();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (projection == null || projection.contains(name)) {
+                json.add(name, TypeAdapters.JSON_ELEMENT.read(in));
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return json;
+    }
+}
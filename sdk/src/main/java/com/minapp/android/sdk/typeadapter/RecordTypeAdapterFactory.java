@@ -1,100 +1,173 @@
 package com.minapp.android.sdk.typeadapter;
 
-import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import com.google.gson.*;
 import com.google.gson.internal.Streams;
-import com.google.gson.internal.bind.TypeAdapters;
 import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
-import com.minapp.android.sdk.Const;
-import com.minapp.android.sdk.Global;
+import com.minapp.android.sdk.Assert;
+import com.minapp.android.sdk.category.BaseCategory;
+import com.minapp.android.sdk.content.Content;
+import com.minapp.android.sdk.content.ContentCategory;
+import com.minapp.android.sdk.content.ContentGroup;
 import com.minapp.android.sdk.database.Record;
+import com.minapp.android.sdk.storage.CloudFile;
+import com.minapp.android.sdk.storage.FileCategory;
+import com.minapp.android.sdk.user.User;
+import com.minapp.android.sdk.util.Provider;
 
 import java.io.IOException;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * {@link Record} 及其子类的序列化/反序列化：
+ * 通过 {@link #register(Class, Provider)} 注册的类型直接 new 出实例，
+ * 其他类型退化为反射调用无参构造函数（只在第一次遇到时查找一次）
+ */
 public class RecordTypeAdapterFactory implements TypeAdapterFactory {
 
-    private Map<Class, Info> cache = new HashMap<>();
+    private static final Map<Class<?>, Provider<? extends Record>> PROVIDERS = new ConcurrentHashMap<>();
+
+    static {
+        register(Record.class, new Provider<Record>() {
+            @Override
+            public Record get() {
+                return new Record();
+            }
+        });
+        register(User.class, new Provider<User>() {
+            @Override
+            public User get() {
+                return new User();
+            }
+        });
+        register(CloudFile.class, new Provider<CloudFile>() {
+            @Override
+            public CloudFile get() {
+                return new CloudFile();
+            }
+        });
+        register(FileCategory.class, new Provider<FileCategory>() {
+            @Override
+            public FileCategory get() {
+                return new FileCategory();
+            }
+        });
+        register(Content.class, new Provider<Content>() {
+            @Override
+            public Content get() {
+                return new Content();
+            }
+        });
+        register(ContentCategory.class, new Provider<ContentCategory>() {
+            @Override
+            public ContentCategory get() {
+                return new ContentCategory();
+            }
+        });
+        register(ContentGroup.class, new Provider<ContentGroup>() {
+            @Override
+            public ContentGroup get() {
+                return new ContentGroup();
+            }
+        });
+        register(BaseCategory.class, new Provider<BaseCategory>() {
+            @Override
+            public BaseCategory get() {
+                return new BaseCategory();
+            }
+        });
+        register(com.minapp.android.sdk.user.Provider.class, new Provider<com.minapp.android.sdk.user.Provider>() {
+            @Override
+            public com.minapp.android.sdk.user.Provider get() {
+                return new com.minapp.android.sdk.user.Provider();
+            }
+        });
+    }
+
+    /**
+     * 注册 {@link Record} 子类的构造方法，反序列化时不再使用反射；
+     * 自定义的 {@link Record} 子类如果在列表页等热点路径上反序列化，建议注册
+     * @param clz
+     * @param provider 每次调用都要返回新的实例
+     */
+    public static <T extends Record> void register(@NonNull Class<T> clz, @NonNull Provider<T> provider) {
+        Assert.notNull(clz, "clz");
+        Assert.notNull(provider, "provider");
+        PROVIDERS.put(clz, provider);
+    }
 
     @Override
     public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
-        Class clz = type.getRawType();
-        Info info = cache.get(clz);
-        if (info != null) {
-            return new InstanceTypeAdapter(info.constructor, info.setter, info.getter);
+        Class<?> clz = type.getRawType();
+        if (!Record.class.isAssignableFrom(clz)) {
+            return null;
         }
 
-        if (Record.class.isAssignableFrom(clz)) {
-            try {
-                Log.d(Const.TAG, clz.toString());
-                Constructor constructor = clz.getDeclaredConstructor();
-                Method setter = clz.getMethod("_setJson", JsonObject.class);
-                Method getter = clz.getMethod("_getJson");
-                if (constructor != null && setter != null && getter != null) {
-                    info =  new Info(constructor, setter, getter);
-                    cache.put(clz, info);
-                    return new InstanceTypeAdapter(info.constructor, info.setter, info.getter);
-                }
-            } catch (Exception e) {
-                Log.e(Const.TAG, e.getMessage(), e);
+        Provider<? extends Record> provider = PROVIDERS.get(clz);
+        if (provider == null) {
+            provider = reflectProvider(clz);
+            if (provider == null) {
+                return null;
             }
+            PROVIDERS.put(clz, provider);
         }
+        return (TypeAdapter<T>) new RecordTypeAdapter(provider);
+    }
 
-        return null;
+    /**
+     * 没有注册过的类型，通过反射调用其无参构造函数
+     */
+    private static @Nullable Provider<? extends Record> reflectProvider(Class<?> clz) {
+        final Constructor<?> constructor;
+        try {
+            constructor = clz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+        } catch (Exception e) {
+            return null;
+        }
+        return new Provider<Record>() {
+            @Override
+            public Record get() {
+                try {
+                    return (Record) constructor.newInstance();
+                } catch (Exception e) {
+                    throw new JsonParseException(e);
+                }
+            }
+        };
     }
 
-    private static class InstanceTypeAdapter extends TypeAdapter {
+    private static class RecordTypeAdapter extends TypeAdapter<Record> {
 
-        private Constructor constructor;
-        private Method setter;
-        private Method getter;
+        private final Provider<? extends Record> provider;
 
-        InstanceTypeAdapter(Constructor constructor, Method setter, Method getter) {
-            this.constructor = constructor;
-            this.setter = setter;
-            this.getter = getter;
+        RecordTypeAdapter(Provider<? extends Record> provider) {
+            this.provider = provider;
         }
 
         @Override
-        public void write(JsonWriter out, Object value) throws IOException {
-            try {
-                JsonObject json = (JsonObject) getter.invoke(value);
-                Streams.write(json, out);
-            } catch (Exception e) {
-                Log.e(Const.TAG, e.getMessage(), e);
-                throw new IOException(e);
+        public void write(JsonWriter out, Record value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
             }
+            Streams.write(value._getJson(), out);
         }
 
         @Override
-        public Object read(JsonReader in) throws IOException {
-            try {
-                JsonObject json = Streams.parse(in).getAsJsonObject();
-                Object object = constructor.newInstance();
-                setter.invoke(object, json);
-                return object;
-            } catch (Exception e) {
-                Log.e(Const.TAG, e.getMessage(), e);
-                throw new IOException(e);
+        public Record read(JsonReader in) throws IOException {
+            JsonObject json = RecordPageReader.readObject(in, null);
+            if (json == null) {
+                return null;
             }
-        }
-    }
-
-    private static class Info {
-        Constructor constructor;
-        Method setter;
-        Method getter;
-
-        Info(Constructor constructor, Method setter, Method getter) {
-            this.constructor = constructor;
-            this.setter = setter;
-            this.getter = getter;
+            Record record = provider.get();
+            record._setJson(json);
+            return record;
         }
     }
 }
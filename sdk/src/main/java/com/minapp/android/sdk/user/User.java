@@ -117,18 +117,9 @@ public class User extends Record {
     @Override
     public User save() throws Exception {
 
-        // 这里要处理下 pointer 类型
-        Record clone = _deepClone();
-        JsonObject json = clone._getJson();
-        for (String field : json.keySet()) {
-            String id = Util.getPointerId(json.get(field));
-            if (id != null) {
-                json.addProperty(field, id);
-            }
-        }
-
-        // 更新
-        User resp = Global.httpApi().updateUserCustomField(this).execute().body();
+        // 只提交修改过的字段，pointer 类型只传 id
+        User body = new User(null, _requestBody(true));
+        User resp = Global.httpApi().updateUserCustomField(body).execute().body();
         _setJson(resp._getJson());
         return this;
     }
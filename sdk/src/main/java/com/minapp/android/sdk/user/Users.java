@@ -6,8 +6,8 @@ import com.minapp.android.sdk.database.query.Query;
 import com.minapp.android.sdk.util.BaseCallback;
 import com.minapp.android.sdk.util.PagedList;
 import com.minapp.android.sdk.util.Util;
+import com.minapp.android.sdk.util.Task;
 
-import java.util.concurrent.Callable;
 
 public abstract class Users {
 
@@ -20,13 +20,8 @@ public abstract class Users {
         return Global.httpApi().users(query != null ? query : new Query()).execute().body().readonly();
     }
 
-    public static void usersInBackground(final Query query, @NonNull BaseCallback<PagedList<User>> cb) {
-        Util.inBackground(cb, new Callable<PagedList<User>>() {
-            @Override
-            public PagedList<User> call() throws Exception {
-                return Users.users(query);
-            }
-        });
+    public static Task<PagedList<User>> usersInBackground(final Query query, @NonNull BaseCallback<PagedList<User>> cb) {
+        return Util.enqueue(Global.httpApi().users(query != null ? query : new Query()), Util.<User>readonlyPage(), cb);
     }
 
     /**
@@ -44,17 +39,12 @@ public abstract class Users {
     }
 
 
-    public static void userInBackground(final String id, @NonNull BaseCallback<User> cb) {
-        Util.inBackground(cb, new Callable<User>() {
-            @Override
-            public User call() throws Exception {
-                return Users.user(id);
-            }
-        });
+    public static Task<User> userInBackground(final String id, @NonNull BaseCallback<User> cb) {
+        return Util.enqueue(Global.httpApi().user(id), Util.<User>identity(), cb);
     }
 
-    public static void userInBackground(Number id, @NonNull BaseCallback<User> cb) {
-        Users.userInBackground(id != null ? id.toString() : "", cb);
+    public static Task<User> userInBackground(Number id, @NonNull BaseCallback<User> cb) {
+        return Users.userInBackground(id != null ? id.toString() : "", cb);
     }
 
     public static User userWithoutData(Number id) {
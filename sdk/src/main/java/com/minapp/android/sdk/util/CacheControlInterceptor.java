@@ -0,0 +1,40 @@
+package com.minapp.android.sdk.util;
+
+import com.minapp.android.sdk.Config;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+
+/**
+ * 按照 {@link Config#setHttpCacheMaxAge(String, int)} 的设置，改写 GET 接口响应的 Cache-Control，
+ * 使其可以被 {@link okhttp3.Cache} 缓存；必须作为 network interceptor 使用
+ */
+public class CacheControlInterceptor implements Interceptor {
+
+    static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    static final String HEADER_PRAGMA = "Pragma";
+    static final String METHOD_GET = "GET";
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+
+        if (!METHOD_GET.equals(request.method()) || !response.isSuccessful()) {
+            return response;
+        }
+
+        int maxAge = Config.getHttpCacheMaxAge(request.url().encodedPath());
+        if (maxAge <= 0) {
+            return response;
+        }
+
+        // 响应里带有用户相关的数据，所以用 private
+        return response.newBuilder()
+                .removeHeader(HEADER_PRAGMA)
+                .header(HEADER_CACHE_CONTROL, "private, max-age=" + maxAge)
+                .build();
+    }
+}
@@ -1,22 +1,15 @@
 package com.minapp.android.sdk.util;
 
 import androidx.annotation.Nullable;
-import android.util.Log;
-import com.minapp.android.sdk.Const;
 
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.GregorianCalendar;
 import java.util.TimeZone;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class DateUtil {
 
-    private static final Pattern DB_DATETIME_REGEXP =
-            Pattern.compile("[+-]?(\\d{4})-?(\\d{2})-?(\\d{2})T(\\d{2}):?(\\d{2}):?(\\d{2})\\.(\\d{6})[Z+](\\d{2}:?\\d{2}?)?");
-
-    private static final String DB_DATETIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSSSSXXX";
-
     /**
      * 北京时间
      * @return
@@ -32,81 +25,247 @@ public abstract class DateUtil {
      * @return
      */
     public static TimeZone getTimeZone(int zone) {
-        String[] timeZoneIds = TimeZone.getAvailableIDs( 1000 * 60 * 60 * zone);
-        TimeZone timeZone = timeZoneIds != null && timeZoneIds.length > 0 ? TimeZone.getTimeZone(timeZoneIds[0]) : TimeZone.getDefault();
+        TimeZone timeZone = TIME_ZONES.get(zone);
+        if (timeZone == null) {
+            String[] timeZoneIds = TimeZone.getAvailableIDs( 1000 * 60 * 60 * zone);
+            timeZone = timeZoneIds != null && timeZoneIds.length > 0 ? TimeZone.getTimeZone(timeZoneIds[0]) : TimeZone.getDefault();
+            TIME_ZONES.putIfAbsent(zone, timeZone);
+        }
         return timeZone;
     }
 
     /**
      * 知晓云数据库 Date 类型字段返回 ISO8601 格式的日期字符串，例如："2018-09-01T18:31:02.631000+08:00"
-     * 这里把它转换为 {@link Calendar}
+     * 这里把它转换为 {@link Calendar}，时区为字符串中的时区；
+     * 逐个字符解析，不使用正则表达式和 {@link SimpleDateFormat}，因为列表中的每个日期字段都会经过这里
      * @param str
-     * @return
+     * @return 格式不对时返回 null
      */
     public static @Nullable Calendar parseDBDateString(String str) {
-        return parseDBDateStringByRegExp(str);
+        if (str == null) {
+            return null;
+        }
+        Parser parser = new Parser(str);
+        long mills = parser.parse();
+        if (mills == Long.MIN_VALUE) {
+            return null;
+        }
+        Calendar calendar = new GregorianCalendar(fixedTimeZone(parser.offsetMinutes));
+        calendar.setTimeInMillis(mills);
+        return calendar;
     }
 
     /**
-     * 使用正则表达式来解析 ISO8601 格式的日期时间字符串
-     * @param str
+     * 按本地时区格式化为 "2018-09-01T18:31:02.631000+08:00"，毫秒之后的三位补 0
+     * @param calendar
      * @return
+     * @see #parseDBDateString(String)
      */
-    private static @Nullable Calendar parseDBDateStringByRegExp(String str) {
-        try {
-            Matcher matcher = DB_DATETIME_REGEXP.matcher(str);
-            if (matcher.matches()) {
-                Integer year = Integer.valueOf(matcher.group(1));
-                Integer month = Integer.valueOf(matcher.group(2)) - 1;
-                Integer day = Integer.valueOf(matcher.group(3));
-                Integer hour = Integer.valueOf(matcher.group(4));
-                Integer minute = Integer.valueOf(matcher.group(5));
-                Integer second = Integer.valueOf(matcher.group(6));
-                Integer millisecond = Integer.valueOf(matcher.group(7)) / 1000;
-                Integer timeZoneOffset = Integer.valueOf(matcher.group(8).substring(0, 2));
-
-                String[] timeZoneIds = TimeZone.getAvailableIDs( 1000 * 60 * 60 * timeZoneOffset);
-                TimeZone timeZone = timeZoneIds != null && timeZoneIds.length > 0 ? TimeZone.getTimeZone(timeZoneIds[0]) : TimeZone.getDefault();
-
-                Calendar calendar = Calendar.getInstance(timeZone);
-                calendar.set(year, month, day, hour, minute, second);
-                calendar.set(Calendar.MILLISECOND, millisecond);
-                return calendar;
-            }
-        } catch (Exception e) {
-            Log.e(Const.TAG, e.getMessage(), e);
+    public static @Nullable String formatDBDateString(Calendar calendar) {
+        if (calendar == null) {
+            return null;
+        }
+        long mills = calendar.getTimeInMillis();
+        int offset = TimeZone.getDefault().getOffset(mills);
+        long local = mills + offset;
+        long days = floorDiv(local, MILLS_PER_DAY);
+        int millsOfDay = (int) (local - days * MILLS_PER_DAY);
+
+        // 公历日期，见 http://howardhinnant.github.io/date_algorithms.html#civil_from_days
+        long z = days + 719468;
+        long era = floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+
+        StringBuilder sb = new StringBuilder(32);
+        pad(sb, year, 4).append('-');
+        pad(sb, month, 2).append('-');
+        pad(sb, day, 2).append('T');
+        pad(sb, millsOfDay / 3600000, 2).append(':');
+        pad(sb, millsOfDay / 60000 % 60, 2).append(':');
+        pad(sb, millsOfDay / 1000 % 60, 2).append('.');
+        pad(sb, millsOfDay % 1000, 3).append("000");
+        if (offset == 0) {
+            sb.append('Z');
+        } else {
+            int minutes = Math.abs(offset) / 60000;
+            sb.append(offset > 0 ? '+' : '-');
+            pad(sb, minutes / 60, 2).append(':');
+            pad(sb, minutes % 60, 2);
         }
-        return null;
+        return sb.toString();
     }
 
+
+    /*************************** private method ***********************************/
+
+
+    private static final long MILLS_PER_DAY = 24 * 60 * 60 * 1000;
+
     /**
-     * 使用 {@link SimpleDateFormat} 来解析 ISO8601 格式的日期时间字符串
-     * @param str
-     * @return
+     * {@link #getTimeZone(int)} 的结果，{@link TimeZone#getAvailableIDs(int)} 每次都要遍历所有时区
      */
-    private static @Nullable Calendar parseDBDateStringBySDF(String str) {
-        try {
-            Calendar calendar = Calendar.getInstance();
-            calendar.setTime(new SimpleDateFormat(DB_DATETIME_FORMAT).parse(str));
-            return calendar;
-        } catch (Exception e) {
-            Log.e(Const.TAG, e.getMessage(), e);
-            return null;
+    private static final ConcurrentHashMap<Integer, TimeZone> TIME_ZONES = new ConcurrentHashMap<>();
+
+    /**
+     * 固定偏移量的时区，以分钟为 key 缓存
+     */
+    private static final ConcurrentHashMap<Integer, TimeZone> FIXED_TIME_ZONES = new ConcurrentHashMap<>();
+
+    private static TimeZone fixedTimeZone(int offsetMinutes) {
+        TimeZone timeZone = FIXED_TIME_ZONES.get(offsetMinutes);
+        if (timeZone == null) {
+            int minutes = Math.abs(offsetMinutes);
+            StringBuilder id = new StringBuilder("GMT").append(offsetMinutes < 0 ? '-' : '+');
+            pad(id, minutes / 60, 2).append(':');
+            pad(id, minutes % 60, 2);
+            timeZone = TimeZone.getTimeZone(id.toString());
+            FIXED_TIME_ZONES.putIfAbsent(offsetMinutes, timeZone);
         }
+        return timeZone;
     }
 
     /**
-     * @param calendar
-     * @return
-     * @see #parseDBDateString(String)
+     * {@link Math#floorDiv(long, long)} 在 API 24 才有
      */
-    public static @Nullable String formatDBDateString(Calendar calendar) {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat(DB_DATETIME_FORMAT);
-            return sdf.format(calendar.getTime());
-        } catch (Exception e) {
-            Log.e(Const.TAG, e.getMessage(), e);
-            return null;
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && (x < 0) != (y < 0)) ? q - 1 : q;
+    }
+
+    private static StringBuilder pad(StringBuilder sb, int value, int width) {
+        for (int i = width - 1, div = 1; i > 0; i--, div *= 10) {
+            if (value < div * 10) {
+                sb.append('0');
+            }
+        }
+        return sb.append(value);
+    }
+
+    /**
+     * 解析 [+-]yyyy-MM-ddTHH:mm:ss.SSSSSS(Z|+HH:mm|-HH:mm)，分隔符 '-' 和 ':' 可以省略，秒的小数部分为 1 到 9 位
+     */
+    private static class Parser {
+
+        private final String str;
+        private int pos = 0;
+        int offsetMinutes = 0;
+
+        Parser(String str) {
+            this.str = str;
+        }
+
+        /**
+         * @return 格式不对时返回 {@link Long#MIN_VALUE}
+         */
+        long parse() {
+            if (peek() == '+' || peek() == '-') {
+                pos++;
+            }
+            int year = digits(4);
+            skip('-');
+            int month = digits(2);
+            skip('-');
+            int day = digits(2);
+            if (!skip('T')) {
+                return Long.MIN_VALUE;
+            }
+            int hour = digits(2);
+            skip(':');
+            int minute = digits(2);
+            skip(':');
+            int second = digits(2);
+
+            int mills = 0;
+            if (skip('.')) {
+                int start = pos;
+                int fraction = 0;
+                while (pos < str.length() && pos - start < 9 && isDigit(str.charAt(pos))) {
+                    fraction = fraction * 10 + (str.charAt(pos++) - '0');
+                }
+                int count = pos - start;
+                if (count == 0) {
+                    return Long.MIN_VALUE;
+                }
+                for (int i = count; i < 3; i++) {
+                    fraction *= 10;
+                }
+                for (int i = count; i > 3; i--) {
+                    fraction /= 10;
+                }
+                mills = fraction;
+            }
+
+            if (!skip('Z')) {
+                char sign = peek();
+                if (sign != '+' && sign != '-') {
+                    return Long.MIN_VALUE;
+                }
+                pos++;
+                int offsetHour = digits(2);
+                skip(':');
+                int offsetMinute = pos < str.length() ? digits(2) : 0;
+                if (offsetHour < 0 || offsetMinute < 0) {
+                    return Long.MIN_VALUE;
+                }
+                offsetMinutes = (sign == '-' ? -1 : 1) * (offsetHour * 60 + offsetMinute);
+            }
+
+            if (pos != str.length() || year < 0 || month < 1 || month > 12 || day < 1 || day > 31
+                    || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+                return Long.MIN_VALUE;
+            }
+
+            // 公历日期到 1970-01-01 的天数，见 http://howardhinnant.github.io/date_algorithms.html#days_from_civil
+            int y = month <= 2 ? year - 1 : year;
+            int era = (int) floorDiv(y, 400);
+            int yoe = y - era * 400;
+            int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+            int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+            long days = era * 146097L + doe - 719468;
+
+            return days * MILLS_PER_DAY + ((hour * 60L + minute) * 60 + second) * 1000 + mills
+                    - offsetMinutes * 60000L;
+        }
+
+        private char peek() {
+            return pos < str.length() ? str.charAt(pos) : 0;
+        }
+
+        private boolean skip(char c) {
+            if (peek() == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * @return 不是 count 位数字时返回 -1
+         */
+        private int digits(int count) {
+            if (pos + count > str.length()) {
+                pos = str.length();
+                return -1;
+            }
+            int value = 0;
+            for (int i = 0; i < count; i++) {
+                char c = str.charAt(pos++);
+                if (!isDigit(c)) {
+                    return -1;
+                }
+                value = value * 10 + (c - '0');
+            }
+            return value;
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
         }
     }
 
@@ -0,0 +1,61 @@
+package com.minapp.android.sdk.util;
+
+/**
+ * 后台线程池的配置，在 {@link com.minapp.android.sdk.BaaS#init} 时传入；
+ * 队列满时新提交的任务会被拒绝（{@link java.util.concurrent.RejectedExecutionException}），
+ * 通过 {@link BaseCallback#onFailure(Throwable)} 返回
+ */
+public class ExecutorOptions {
+
+    /**
+     * {@link Lane#INTERACTIVE} 的线程数
+     */
+    public int interactiveThreads = 5;
+
+    /**
+     * {@link Lane#INTERACTIVE} 的队列长度
+     */
+    public int interactiveQueueCapacity = 256;
+
+    /**
+     * {@link Lane#BULK} 的线程数
+     */
+    public int bulkThreads = 2;
+
+    /**
+     * {@link Lane#BULK} 的队列长度
+     */
+    public int bulkQueueCapacity = 128;
+
+    /**
+     * {@link Lane#PREFETCH} 的线程数
+     */
+    public int prefetchThreads = 1;
+
+    /**
+     * {@link Lane#PREFETCH} 的队列长度
+     */
+    public int prefetchQueueCapacity = 16;
+
+    /**
+     * 空闲线程存活的时间（毫秒），超时后回收，不为 0 时线程数可以降到 0
+     */
+    public long keepAliveMills = 30 * 1000;
+
+
+    int threads(Lane lane) {
+        switch (lane) {
+            case BULK: return bulkThreads;
+            case PREFETCH: return prefetchThreads;
+            default: return interactiveThreads;
+        }
+    }
+
+    int queueCapacity(Lane lane) {
+        switch (lane) {
+            case BULK: return bulkQueueCapacity;
+            case PREFETCH: return prefetchQueueCapacity;
+            default: return interactiveQueueCapacity;
+        }
+    }
+}
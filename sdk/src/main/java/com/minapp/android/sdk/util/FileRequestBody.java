@@ -0,0 +1,89 @@
+package com.minapp.android.sdk.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.minapp.android.sdk.Assert;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * 以文件（或文件中的一段）作为请求体：长度确定（不会退化为 chunked 编码），
+ * 通过 Okio 直接从文件读入 sink 的 buffer，不会把整个文件读入内存；
+ * 每次 {@link #writeTo(BufferedSink)} 都重新打开文件，所以可以重试
+ */
+public class FileRequestBody extends RequestBody {
+
+    private static final long SEGMENT_SIZE = 8192;
+
+    private final MediaType contentType;
+    private final File file;
+    private final long offset;
+    private final long length;
+    private final ProgressListener listener;
+
+    public FileRequestBody(@Nullable MediaType contentType, @NonNull File file) {
+        this(contentType, file, null);
+    }
+
+    public FileRequestBody(@Nullable MediaType contentType, @NonNull File file, @Nullable ProgressListener listener) {
+        this(contentType, file, 0, file.length(), listener);
+    }
+
+    /**
+     * @param offset 从文件的第几个字节开始
+     * @param length 字节数
+     */
+    public FileRequestBody(@Nullable MediaType contentType, @NonNull File file,
+                           long offset, long length, @Nullable ProgressListener listener) {
+        Assert.notNull(file, "file");
+        this.contentType = contentType;
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+        this.listener = listener;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+
+    @Override
+    public void writeTo(@NonNull BufferedSink sink) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        Source source = null;
+        try {
+            if (offset > 0) {
+                in.getChannel().position(offset);
+            }
+            source = Okio.source(in);
+            long written = 0;
+            while (written < length) {
+                long read = source.read(sink.buffer(), Math.min(SEGMENT_SIZE, length - written));
+                if (read == -1) {
+                    throw new IOException("unexpected end of file: " + file);
+                }
+                written += read;
+                sink.emitCompleteSegments();
+                if (listener != null) {
+                    listener.onProgress(written, length);
+                }
+            }
+        } finally {
+            Util.closeQuietly(source);
+            Util.closeQuietly(in);
+        }
+    }
+}
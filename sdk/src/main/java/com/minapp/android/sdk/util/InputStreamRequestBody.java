@@ -13,20 +13,37 @@ import okhttp3.RequestBody;
 import okio.BufferedSink;
 import okio.Okio;
 
+/**
+ * 以 InputStream 作为请求体，只能写一次（不能重试）；
+ * 不知道长度时 {@link #contentLength()} 返回 -1，以 chunked 编码发送。
+ * 上传本地文件请使用 {@link FileRequestBody}
+ */
 public class InputStreamRequestBody extends RequestBody {
 
     private MediaType contentType;
     private InputStream in;
+    private long contentLength;
 
     /**
      *
      * @param contentType
      * @param in caller 负责关闭
+     * @param contentLength 字节数，未知时传 -1；{@link InputStream#available()} 不是流的长度，不能用在这里
      */
-    public InputStreamRequestBody(@Nullable MediaType contentType, @NonNull InputStream in) {
+    public InputStreamRequestBody(@Nullable MediaType contentType, @NonNull InputStream in, long contentLength) {
         Assert.notNull(in, "InputStream");
         this.contentType = contentType;
         this.in = in;
+        this.contentLength = contentLength;
+    }
+
+    /**
+     *
+     * @param contentType
+     * @param in caller 负责关闭
+     */
+    public InputStreamRequestBody(@Nullable MediaType contentType, @NonNull InputStream in) {
+        this(contentType, in, -1);
     }
 
     public InputStreamRequestBody(@NonNull InputStream in) {
@@ -40,11 +57,11 @@ public class InputStreamRequestBody extends RequestBody {
 
     @Override
     public void writeTo(BufferedSink sink) throws IOException {
-        Okio.buffer(Okio.source(in)).readAll(sink);
+        sink.writeAll(Okio.source(in));
     }
 
     @Override
-    public long contentLength() throws IOException {
-        return in.available();
+    public long contentLength() {
+        return contentLength;
     }
 }
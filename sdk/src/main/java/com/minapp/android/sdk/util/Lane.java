@@ -0,0 +1,30 @@
+package com.minapp.android.sdk.util;
+
+/**
+ * 后台任务的通道，每个通道有独立的线程和有界队列，互不抢占：
+ * 比如大量的文件上传不会让列表页的查询排队
+ * @see ExecutorOptions
+ */
+public enum Lane {
+
+    /**
+     * 用户正在等待结果的请求，比如查询、保存，默认的通道
+     */
+    INTERACTIVE(Thread.NORM_PRIORITY),
+
+    /**
+     * 耗时的批量任务，比如文件上传
+     */
+    BULK(Thread.NORM_PRIORITY - 1),
+
+    /**
+     * 预取，结果不一定会被用到，被拒绝时调用方应退化为同步读取
+     */
+    PREFETCH(Thread.MIN_PRIORITY);
+
+    final int threadPriority;
+
+    Lane(int threadPriority) {
+        this.threadPriority = threadPriority;
+    }
+}
@@ -0,0 +1,192 @@
+package com.minapp.android.sdk.util;
+
+import androidx.annotation.NonNull;
+import com.minapp.android.sdk.Assert;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按 {@link Lane} 划分的线程池，每个通道一个有界的 {@link ThreadPoolExecutor}，
+ * 并记录队列长度和排队时间
+ */
+public class LaneExecutor {
+
+    private final Map<Lane, LanePool> pools = new EnumMap<>(Lane.class);
+
+    public LaneExecutor(@NonNull ExecutorOptions options) {
+        Assert.notNull(options, "options");
+        for (Lane lane : Lane.values()) {
+            pools.put(lane, new LanePool(lane, options));
+        }
+    }
+
+    /**
+     * @throws java.util.concurrent.RejectedExecutionException 队列已满或已经 shutdown
+     */
+    public Future<?> submit(@NonNull Lane lane, @NonNull Runnable task) {
+        return pools.get(lane).submit(task);
+    }
+
+    /**
+     * @throws java.util.concurrent.RejectedExecutionException 队列已满或已经 shutdown
+     */
+    public <T> Future<T> submit(@NonNull Lane lane, @NonNull Callable<T> task) {
+        return pools.get(lane).submit(task);
+    }
+
+    public @NonNull Stats stats(@NonNull Lane lane) {
+        return pools.get(lane).stats();
+    }
+
+    /**
+     * 不再接收新任务，已经提交的任务会继续执行完
+     */
+    public void shutdown() {
+        for (LanePool pool : pools.values()) {
+            pool.shutdown();
+        }
+    }
+
+
+    /**
+     * 某个通道的运行状态
+     */
+    public static class Stats {
+
+        /**
+         * 正在排队的任务数
+         */
+        public int queueDepth;
+
+        /**
+         * 正在执行的任务数
+         */
+        public int activeCount;
+
+        /**
+         * 已经开始执行的任务数
+         */
+        public long startedCount;
+
+        /**
+         * 因为队列已满被拒绝的任务数
+         */
+        public long rejectedCount;
+
+        /**
+         * 平均排队时间（毫秒）
+         */
+        public long averageWaitMills;
+
+        /**
+         * 最长排队时间（毫秒）
+         */
+        public long maxWaitMills;
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "queueDepth=" + queueDepth +
+                    ", activeCount=" + activeCount +
+                    ", startedCount=" + startedCount +
+                    ", rejectedCount=" + rejectedCount +
+                    ", averageWaitMills=" + averageWaitMills +
+                    ", maxWaitMills=" + maxWaitMills +
+                    '}';
+        }
+    }
+
+
+    private static class LanePool extends ThreadPoolExecutor {
+
+        private final AtomicLong started = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong totalWaitMills = new AtomicLong();
+        private final AtomicLong maxWaitMills = new AtomicLong();
+
+        LanePool(final Lane lane, ExecutorOptions options) {
+            super(Math.max(options.threads(lane), 1), Math.max(options.threads(lane), 1),
+                    options.keepAliveMills, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(Math.max(options.queueCapacity(lane), 1)),
+                    new LaneThreadFactory(lane));
+            allowCoreThreadTimeOut(options.keepAliveMills > 0);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            try {
+                super.execute(new TimedRunnable(command));
+            } catch (RuntimeException e) {
+                rejected.incrementAndGet();
+                throw e;
+            }
+        }
+
+        @Override
+        protected void beforeExecute(Thread t, Runnable r) {
+            super.beforeExecute(t, r);
+            if (r instanceof TimedRunnable) {
+                long wait = (System.nanoTime() - ((TimedRunnable) r).enqueuedAt) / 1000000;
+                started.incrementAndGet();
+                totalWaitMills.addAndGet(wait);
+                long max;
+                while (wait > (max = maxWaitMills.get()) && !maxWaitMills.compareAndSet(max, wait)) {}
+            }
+        }
+
+        Stats stats() {
+            Stats stats = new Stats();
+            stats.queueDepth = getQueue().size();
+            stats.activeCount = getActiveCount();
+            stats.startedCount = started.get();
+            stats.rejectedCount = rejected.get();
+            stats.averageWaitMills = stats.startedCount > 0 ? totalWaitMills.get() / stats.startedCount : 0;
+            stats.maxWaitMills = maxWaitMills.get();
+            return stats;
+        }
+    }
+
+
+    private static class TimedRunnable implements Runnable {
+
+        final Runnable delegate;
+        final long enqueuedAt = System.nanoTime();
+
+        TimedRunnable(Runnable delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            delegate.run();
+        }
+    }
+
+
+    private static class LaneThreadFactory implements ThreadFactory {
+
+        private final Lane lane;
+        private final AtomicInteger count = new AtomicInteger();
+
+        LaneThreadFactory(Lane lane) {
+            this.lane = lane;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable r) {
+            Thread thread = new Thread(r, "hydrogen-" + lane.name().toLowerCase() + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(lane.threadPriority);
+            return thread;
+        }
+    }
+}
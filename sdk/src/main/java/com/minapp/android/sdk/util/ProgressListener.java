@@ -0,0 +1,14 @@
+package com.minapp.android.sdk.util;
+
+/**
+ * 上传、下载的进度回调，在执行请求的后台线程中回调，需要更新 UI 时请自行切换到主线程
+ */
+public interface ProgressListener {
+
+    /**
+     * @param bytesTransferred 已经传输的字节数
+     * @param contentLength 总字节数，未知时为 -1
+     */
+    void onProgress(long bytesTransferred, long contentLength);
+
+}
@@ -0,0 +1,11 @@
+package com.minapp.android.sdk.util;
+
+/**
+ * 把 http response body 转换为返回给调用方的结果，在 OkHttp 的线程里执行
+ * @see Util#enqueue(com.minapp.android.sdk.auth.CheckedCall, ResponseHandler, BaseCallback)
+ */
+public interface ResponseHandler<R, T> {
+
+    T handle(R body) throws Exception;
+
+}
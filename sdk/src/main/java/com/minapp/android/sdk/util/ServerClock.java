@@ -0,0 +1,122 @@
+package com.minapp.android.sdk.util;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.SharedPreferences;
+import androidx.annotation.Nullable;
+import com.minapp.android.sdk.Const;
+import com.minapp.android.sdk.Global;
+
+import java.util.Calendar;
+
+/**
+ * 服务器时钟：记录服务器时间与本地时钟的差值，避免用户修改手机时间后本地判断（比如登录是否过期）出错。
+ * 由 {@link ServerClockInterceptor} 根据每个响应的 Date 头校准（精度为秒），
+ * 调用 {@link com.minapp.android.sdk.BaaS#getServerDate()} 时精确校准；
+ * 差值保存在 {@link Const#SP_NAME} 中，和登录信息的过期时间放在一起，app 重启后两者仍然一致
+ */
+public abstract class ServerClock {
+
+    static final String SP_OFFSET = "SERVER_CLOCK_OFFSET";
+
+    private static final long DATE_HEADER_PRECISION = 1000;
+
+    private static volatile long offset = 0;
+    private static volatile boolean synced = false;
+    private static volatile boolean loaded = false;
+
+    /**
+     * @return 当前的服务器时间，单位毫秒
+     */
+    public static long now() {
+        return System.currentTimeMillis() + offset();
+    }
+
+    /**
+     * @return 服务器时间减去本地时间，单位毫秒
+     */
+    public static long offset() {
+        load();
+        return offset;
+    }
+
+    /**
+     * @return 本次启动后是否校准过
+     */
+    public static boolean isSynced() {
+        return synced;
+    }
+
+    /**
+     * 用一次请求的结果校准，假设服务器时间对应请求发出和收到响应的中间时刻
+     * @param serverTime 服务器返回的时间
+     * @param requestAt 发出请求时的本地时间 {@link System#currentTimeMillis()}
+     * @param responseAt 收到响应时的本地时间
+     */
+    public static void update(@Nullable Calendar serverTime, long requestAt, long responseAt) {
+        if (serverTime == null) {
+            return;
+        }
+        set(serverTime.getTimeInMillis() - (requestAt + responseAt) / 2);
+    }
+
+    /**
+     * 用响应的 Date 头校准：Date 只精确到秒，所以差值在一个区间内；
+     * 当前的差值在区间内时不修改，避免覆盖 {@link #update(Calendar, long, long)} 得到的更精确的值
+     * @param date Date 头的时间，单位毫秒
+     */
+    public static void updateFromDateHeader(long date, long requestAt, long responseAt) {
+        long min = date - responseAt;
+        long max = date + DATE_HEADER_PRECISION - requestAt;
+        long current = offset();
+        if (!synced || current < min || current > max) {
+            set(date + DATE_HEADER_PRECISION / 2 - (requestAt + responseAt) / 2);
+        }
+    }
+
+
+    /*************************** private method ***********************************/
+
+
+    private static void set(long newOffset) {
+        load();
+        boolean changed;
+        synchronized (ServerClock.class) {
+            changed = offset != newOffset;
+            offset = newOffset;
+            synced = true;
+        }
+        if (changed) {
+            SharedPreferences sp = getSP();
+            if (sp != null) {
+                sp.edit().putLong(SP_OFFSET, newOffset).apply();
+            }
+        }
+    }
+
+    /**
+     * 第一次使用时读取上次保存的差值，本次启动已经校准过时不再读取
+     */
+    private static void load() {
+        if (loaded) {
+            return;
+        }
+        SharedPreferences sp = getSP();
+        if (sp == null) {
+            return;
+        }
+        synchronized (ServerClock.class) {
+            if (!loaded) {
+                if (!synced) {
+                    offset = sp.getLong(SP_OFFSET, 0);
+                }
+                loaded = true;
+            }
+        }
+    }
+
+    private static @Nullable SharedPreferences getSP() {
+        Application app = Global.getApplication();
+        return app != null ? app.getSharedPreferences(Const.SP_NAME, Context.MODE_PRIVATE) : null;
+    }
+}
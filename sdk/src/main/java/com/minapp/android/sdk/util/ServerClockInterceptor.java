@@ -0,0 +1,27 @@
+package com.minapp.android.sdk.util;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * 根据响应的 Date 头校准 {@link ServerClock}；必须作为 network interceptor 使用，
+ * 缓存中的响应的 Date 是缓存时的时间，不能用来校准
+ */
+public class ServerClockInterceptor implements Interceptor {
+
+    static final String HEADER_DATE = "Date";
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        Date date = response.headers().getDate(HEADER_DATE);
+        if (date != null) {
+            ServerClock.updateFromDateHeader(
+                    date.getTime(), response.sentRequestAtMillis(), response.receivedResponseAtMillis());
+        }
+        return response;
+    }
+}
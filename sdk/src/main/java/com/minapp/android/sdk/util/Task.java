@@ -0,0 +1,473 @@
+package com.minapp.android.sdk.util;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.minapp.android.sdk.Assert;
+import com.minapp.android.sdk.Const;
+import com.minapp.android.sdk.Global;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 后台任务的句柄，*InBackground 方法都会返回一个 Task：
+ * 1. {@link #cancel(boolean)} 会取消正在执行的请求（{@link com.minapp.android.sdk.auth.CheckedCall#cancel()}），
+ *    并且之后不会再回调 callback
+ * 2. {@link #timeout(long)} 超时后以 {@link TimeoutException} 结束并取消正在执行的请求
+ * 3. {@link #map(Function)}、{@link #then(Function)} 串联，{@link #all(List)} 汇合多个任务
+ * 因为 minSdkVersion 为 21，没有使用 CompletableFuture
+ */
+public class Task<T> implements Future<T> {
+
+    private static final ThreadLocal<Task<?>> CURRENT = new ThreadLocal<>();
+
+    private static final int PENDING = 0;
+    private static final int SUCCESS = 1;
+    private static final int FAILURE = 2;
+    private static final int CANCELLED = 3;
+
+    private final Object lock = new Object();
+    private int state = PENDING;
+    private T result;
+    private Throwable error;
+    private volatile boolean cancelRequested = false;
+    private boolean hooksRun = false;
+    private List<Listener<? super T>> listeners = new ArrayList<>();
+    private List<Runnable> cancelHooks = new ArrayList<>();
+
+
+    private interface Submitter {
+        Future<?> submit(Runnable runnable) throws RejectedExecutionException;
+    }
+
+
+    /**
+     * 任务结束（成功、失败、取消）时回调，在结束任务的线程里执行
+     */
+    public interface Listener<T> {
+        void onDone(@NonNull Task<T> task);
+    }
+
+
+    /**
+     * 在 lane 中执行 callable，callable 执行期间发起的 {@link com.minapp.android.sdk.auth.CheckedCall#execute()}
+     * 会随着 Task 的取消而取消
+     */
+    public static <T> Task<T> submit(@NonNull final Lane lane, @NonNull Callable<T> callable) {
+        return submit(new Submitter() {
+            @Override
+            public Future<?> submit(Runnable runnable) {
+                return Global.submit(lane, runnable);
+            }
+        }, callable);
+    }
+
+    /**
+     * 在 executor 中执行 callable，用于自行控制并发数的场景（比如批量上传），其他同 {@link #submit(Lane, Callable)}
+     */
+    public static <T> Task<T> submit(@NonNull final ExecutorService executor, @NonNull Callable<T> callable) {
+        return submit(new Submitter() {
+            @Override
+            public Future<?> submit(Runnable runnable) {
+                return executor.submit(runnable);
+            }
+        }, callable);
+    }
+
+    private static <T> Task<T> submit(Submitter submitter, @NonNull final Callable<T> callable) {
+        final Task<T> task = new Task<>();
+        try {
+            final Future<?> future = submitter.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (task.isDone()) {
+                        return;
+                    }
+                    CURRENT.set(task);
+                    try {
+                        task.complete(callable.call());
+                    } catch (Throwable e) {
+                        task.completeExceptionally(e);
+                    } finally {
+                        CURRENT.remove();
+                    }
+                }
+            });
+            task.addCancelHook(new Runnable() {
+                @Override
+                public void run() {
+                    future.cancel(true);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            task.completeExceptionally(e);
+        }
+        return task;
+    }
+
+    /**
+     * @return 当前线程正在执行的 Task，不在 {@link #submit(Lane, Callable)} 中时返回 null
+     */
+    public static @Nullable Task<?> current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 所有任务都成功后，按顺序返回它们的结果；任何一个失败或取消，其他任务都会被取消
+     */
+    public static <T> Task<List<T>> all(@NonNull final List<? extends Task<? extends T>> tasks) {
+        Assert.notNull(tasks, "tasks");
+        final Task<List<T>> all = new Task<>();
+        if (tasks.isEmpty()) {
+            all.complete(Collections.<T>emptyList());
+            return all;
+        }
+
+        final Object[] results = new Object[tasks.size()];
+        final AtomicInteger remaining = new AtomicInteger(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            final int index = i;
+            final Task<? extends T> task = tasks.get(i);
+            all.addCancelHook(new Runnable() {
+                @Override
+                public void run() {
+                    task.cancel(true);
+                }
+            });
+            task.addListener(new Listener<T>() {
+                @Override
+                public void onDone(@NonNull Task<T> t) {
+                    if (t.isCancelled()) {
+                        all.cancel(true);
+                    } else if (!t.isSuccessful()) {
+                        all.completeExceptionally(t.getError());
+                        all.runCancelHooks();
+                    } else {
+                        results[index] = t.getResult();
+                        if (remaining.decrementAndGet() == 0) {
+                            all.complete((List<T>) Arrays.asList(results));
+                        }
+                    }
+                }
+            });
+        }
+        return all;
+    }
+
+    /**
+     * 任务结束时回调，如果任务已经结束则立即回调
+     */
+    public Task<T> addListener(@NonNull Listener<? super T> listener) {
+        Assert.notNull(listener, "listener");
+        synchronized (lock) {
+            if (state == PENDING) {
+                listeners.add(listener);
+                return this;
+            }
+        }
+        notifyListener(listener);
+        return this;
+    }
+
+    /**
+     * 任务被取消（包括超时）时执行 hook，如果已经被取消则立即执行；用来把取消传递给正在执行的请求
+     */
+    public void addCancelHook(@NonNull Runnable hook) {
+        synchronized (lock) {
+            if (!hooksRun) {
+                cancelHooks.add(hook);
+                return;
+            }
+        }
+        runQuietly(hook);
+    }
+
+    public void removeCancelHook(@Nullable Runnable hook) {
+        synchronized (lock) {
+            cancelHooks.remove(hook);
+        }
+    }
+
+    /**
+     * 超过 mills 毫秒还没有结束，则以 {@link TimeoutException} 结束并取消正在执行的请求
+     */
+    public Task<T> timeout(long mills) {
+        final ScheduledFuture<?> timer = Global.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (completeExceptionally(new TimeoutException())) {
+                    runCancelHooks();
+                }
+            }
+        }, mills);
+        addListener(new Listener<T>() {
+            @Override
+            public void onDone(@NonNull Task<T> task) {
+                timer.cancel(false);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * 任务成功后用 func 转换结果，func 在结束任务的线程里执行，不应该有耗时操作；
+     * 取消返回的 Task 也会取消当前的 Task
+     */
+    public <R> Task<R> map(@NonNull final Function<? super T, ? extends R> func) {
+        final Task<R> next = new Task<>();
+        linkCancel(next, this);
+        addListener(new Listener<T>() {
+            @Override
+            public void onDone(@NonNull Task<T> task) {
+                if (forwardFailure(task, next)) {
+                    return;
+                }
+                try {
+                    next.complete(func.on(task.getResult()));
+                } catch (Throwable e) {
+                    next.completeExceptionally(e);
+                }
+            }
+        });
+        return next;
+    }
+
+    /**
+     * 任务成功后用 func 发起下一个任务，比如 {@code fetchRecord} 之后再 {@code query}；
+     * 取消返回的 Task 会取消当前或下一个任务
+     */
+    public <R> Task<R> then(@NonNull final Function<? super T, ? extends Task<R>> func) {
+        final Task<R> next = new Task<>();
+        linkCancel(next, this);
+        addListener(new Listener<T>() {
+            @Override
+            public void onDone(@NonNull Task<T> task) {
+                if (forwardFailure(task, next)) {
+                    return;
+                }
+                final Task<R> inner;
+                try {
+                    inner = func.on(task.getResult());
+                } catch (Throwable e) {
+                    next.completeExceptionally(e);
+                    return;
+                }
+                if (inner == null) {
+                    next.complete(null);
+                    return;
+                }
+                linkCancel(next, inner);
+                inner.addListener(new Listener<R>() {
+                    @Override
+                    public void onDone(@NonNull Task<R> t) {
+                        if (!forwardFailure(t, next)) {
+                            next.complete(t.getResult());
+                        }
+                    }
+                });
+            }
+        });
+        return next;
+    }
+
+    /**
+     * 以 result 结束任务
+     * @return 任务已经结束时返回 false
+     */
+    public boolean complete(T result) {
+        return finish(SUCCESS, result, null);
+    }
+
+    /**
+     * 以 error 结束任务
+     * @return 任务已经结束时返回 false
+     */
+    public boolean completeExceptionally(@NonNull Throwable error) {
+        return finish(FAILURE, null, error);
+    }
+
+    /**
+     * 取消任务：正在执行的请求会被取消，callback 不会再被回调（即使结果已经返回，只是还没有回调）
+     * @param mayInterruptIfRunning 总是会中断正在执行的请求，忽略该参数
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = finish(CANCELLED, null, new CancellationException());
+        runCancelHooks();
+        return cancelled;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        synchronized (lock) {
+            return state == CANCELLED;
+        }
+    }
+
+    @Override
+    public boolean isDone() {
+        synchronized (lock) {
+            return state != PENDING;
+        }
+    }
+
+    public boolean isSuccessful() {
+        synchronized (lock) {
+            return state == SUCCESS;
+        }
+    }
+
+    /**
+     * @return 成功时的结果，其他情况返回 null
+     */
+    public @Nullable T getResult() {
+        synchronized (lock) {
+            return result;
+        }
+    }
+
+    /**
+     * @return 失败或取消时的异常，其他情况返回 null
+     */
+    public @Nullable Throwable getError() {
+        synchronized (lock) {
+            return error;
+        }
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        synchronized (lock) {
+            while (state == PENDING) {
+                lock.wait();
+            }
+            return report();
+        }
+    }
+
+    @Override
+    public T get(long timeout, @NonNull TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (lock) {
+            while (state == PENDING) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException();
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+            return report();
+        }
+    }
+
+    /**
+     * 调用过 {@link #cancel(boolean)}，即使当时任务已经结束
+     */
+    boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+
+    /*************************** private method ***********************************/
+
+
+    private T report() throws ExecutionException {
+        if (state == CANCELLED) {
+            throw new CancellationException();
+        } else if (state == FAILURE) {
+            throw new ExecutionException(error);
+        }
+        return result;
+    }
+
+    private boolean finish(int newState, T result, Throwable error) {
+        List<Listener<? super T>> toNotify;
+        synchronized (lock) {
+            if (newState == CANCELLED) {
+                cancelRequested = true;
+            }
+            if (state != PENDING) {
+                return false;
+            }
+            this.state = newState;
+            this.result = result;
+            this.error = error;
+            toNotify = listeners;
+            listeners = Collections.emptyList();
+            lock.notifyAll();
+        }
+        for (Listener<? super T> listener : toNotify) {
+            notifyListener(listener);
+        }
+        return true;
+    }
+
+    private void runCancelHooks() {
+        List<Runnable> hooks;
+        synchronized (lock) {
+            hooksRun = true;
+            hooks = cancelHooks;
+            cancelHooks = new ArrayList<>();
+        }
+        for (Runnable hook : hooks) {
+            runQuietly(hook);
+        }
+    }
+
+    private void notifyListener(Listener<? super T> listener) {
+        try {
+            ((Listener<T>) listener).onDone(this);
+        } catch (Exception e) {
+            Log.e(Const.TAG, e.getMessage(), e);
+        }
+    }
+
+    private static void runQuietly(Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (Exception e) {
+            Log.e(Const.TAG, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 取消 downstream 时，一起取消 upstream
+     */
+    private static void linkCancel(Task<?> downstream, final Task<?> upstream) {
+        downstream.addCancelHook(new Runnable() {
+            @Override
+            public void run() {
+                upstream.cancel(true);
+            }
+        });
+    }
+
+    /**
+     * 把 from 的失败或取消传递给 to
+     * @return from 没有成功时返回 true
+     */
+    private static boolean forwardFailure(Task<?> from, Task<?> to) {
+        if (from.isCancelled()) {
+            to.cancel(true);
+            return true;
+        }
+        if (!from.isSuccessful()) {
+            to.completeExceptionally(from.getError());
+            return true;
+        }
+        return false;
+    }
+}
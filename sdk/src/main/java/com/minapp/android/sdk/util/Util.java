@@ -8,17 +8,39 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.minapp.android.sdk.Const;
 import com.minapp.android.sdk.Global;
+import com.minapp.android.sdk.auth.CheckedCall;
 import com.minapp.android.sdk.database.Record;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
 
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 import java.util.regex.Pattern;
 
 public abstract class Util {
 
+    /**
+     * 在调用线程中直接执行
+     */
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * 在调用线程中直接执行，用于 {@link CheckedCall#enqueue(Callback, Executor)} 的回调只有轻量操作时
+     */
+    public static Executor directExecutor() {
+        return DIRECT_EXECUTOR;
+    }
+
     private static final String[] POINTER_FEATURE = new String[]{
             Record.ID, Record.TABLE
     };
@@ -35,26 +57,134 @@ public abstract class Util {
     }
 
 
-    public static <T> void inBackground(@NonNull final BaseCallback<T> cb, @NonNull final Callable<T> callable) {
-        Global.submit(new Runnable() {
+    public static <T> Task<T> inBackground(@NonNull final BaseCallback<T> cb, @NonNull final Callable<T> callable) {
+        return inBackground(Lane.INTERACTIVE, cb, callable);
+    }
+
+    /**
+     * 在指定的 {@link Lane} 中执行 callable，结果在主线程回调给 cb；
+     * 通道的队列已满时通过 cb 返回 {@link java.util.concurrent.RejectedExecutionException}，
+     * 返回的 Task 被取消后不再回调 cb
+     */
+    public static <T> Task<T> inBackground(
+            @NonNull Lane lane, @NonNull final BaseCallback<T> cb, @NonNull final Callable<T> callable) {
+        return deliver(Task.submit(lane, callable), cb);
+    }
+
+    /**
+     * 在同一个后台任务里先后执行 first 和 second，两次的结果都会回调给 cb，用于「先返回缓存再返回网络数据」：
+     * first 返回 null 或抛出异常时不回调；返回的 Task 以 second 的结果结束
+     */
+    public static <T> Task<T> inBackground(
+            @NonNull final BaseCallback<T> cb, @NonNull final Callable<T> first, @NonNull final Callable<T> second) {
+        Task<T> task = Task.submit(Lane.INTERACTIVE, new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                try {
+                    final T t = first.call();
+                    if (t != null) {
+                        postOnMain(Task.current(), cb, t, null);
+                    }
+                } catch (Exception e) {
+                    Log.e(Const.TAG, e.getMessage(), e);
+                }
+                return second.call();
+            }
+        });
+        return deliver(task, cb);
+    }
+
+    /**
+     * 通过 {@link CheckedCall#enqueue(Callback, Executor)} 异步发起请求，由 OkHttp 的 Dispatcher 调度，
+     * 不占用 sdk 的线程池；handler 在 OkHttp 的线程里把 body 转换为结果，结果在主线程回调给 cb，
+     * 返回的 Task 被取消时会取消请求
+     */
+    public static <R, T> Task<T> enqueue(
+            @NonNull final CheckedCall<R> call, @NonNull final ResponseHandler<R, T> handler, @NonNull BaseCallback<T> cb) {
+        final Task<T> task = new Task<>();
+        task.addCancelHook(new Runnable() {
             @Override
             public void run() {
+                call.cancel();
+            }
+        });
+        call.enqueue(new Callback<R>() {
+            @Override
+            public void onResponse(Call<R> c, Response<R> response) {
                 try {
-                    final T t = callable.call();
-                    Global.postOnMain(new Runnable() {
-                        @Override
-                        public void run() {
-                            cb.onSuccess(t);
-                        }
-                    });
-
-                } catch (final Exception e) {
-                    Global.postOnMain(new Runnable() {
-                        @Override
-                        public void run() {
-                            cb.onFailure(e);
-                        }
-                    });
+                    task.complete(handler.handle(response.body()));
+                } catch (Throwable e) {
+                    task.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void onFailure(Call<R> c, Throwable t) {
+                task.completeExceptionally(t);
+            }
+        }, DIRECT_EXECUTOR);
+        return deliver(task, cb);
+    }
+
+    /**
+     * 把 {@link PagedListResponse} 转换为只读的 {@link PagedList}
+     */
+    public static <T> ResponseHandler<PagedListResponse<T>, PagedList<T>> readonlyPage() {
+        return new ResponseHandler<PagedListResponse<T>, PagedList<T>>() {
+            @Override
+            public PagedList<T> handle(PagedListResponse<T> body) {
+                return body.readonly();
+            }
+        };
+    }
+
+    /**
+     * 原样返回 body
+     */
+    public static <T> ResponseHandler<T, T> identity() {
+        return new ResponseHandler<T, T>() {
+            @Override
+            public T handle(T body) {
+                return body;
+            }
+        };
+    }
+
+    /**
+     * 已经有结果时（比如命中了内存缓存），直接在主线程回调 cb
+     */
+    public static <T> Task<T> completed(T result, @NonNull BaseCallback<T> cb) {
+        Task<T> task = new Task<>();
+        task.complete(result);
+        return deliver(task, cb);
+    }
+
+    /**
+     * 任务结束后在主线程回调 cb，任务被取消时不回调
+     */
+    public static <T> Task<T> deliver(@NonNull Task<T> task, @NonNull final BaseCallback<T> cb) {
+        return task.addListener(new Task.Listener<T>() {
+            @Override
+            public void onDone(@NonNull Task<T> task) {
+                if (!task.isCancelled()) {
+                    postOnMain(task, cb, task.getResult(), task.isSuccessful() ? null : task.getError());
+                }
+            }
+        });
+    }
+
+    private static <T> void postOnMain(
+            @Nullable final Task<?> task, @NonNull final BaseCallback<T> cb, final T result, @Nullable final Throwable error) {
+        Global.postOnMain(new Runnable() {
+            @Override
+            public void run() {
+                if (task != null && task.isCancelRequested()) {
+                    return;
+                }
+                if (error != null) {
+                    cb.onFailure(error);
+                } else {
+                    cb.onSuccess(result);
                 }
             }
         });
@@ -6,6 +6,6 @@ import org.junit.runners.Suite
 
 @RunWith(Suite::class)
 @Suite.SuiteClasses(
-    RecordTest::class, WhereTest::class
+    RecordTest::class, WhereTest::class, RecordPageReaderTest::class, TaskTest::class, DateUtilTest::class
 )
 class AllUnitTests
\ No newline at end of file
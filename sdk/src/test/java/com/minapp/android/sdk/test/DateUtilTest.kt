@@ -0,0 +1,108 @@
+package com.minapp.android.sdk.test
+
+import com.minapp.android.sdk.util.DateUtil
+import org.junit.Assert.*
+import org.junit.Ignore
+import org.junit.Test
+import java.util.*
+import java.util.regex.Pattern
+
+class DateUtilTest: BaseUnitTest() {
+
+    @Test
+    fun parseTest() {
+        val calendar = DateUtil.parseDBDateString("2018-09-01T18:31:02.631000+08:00")!!
+        assertEquals(1535797862631L, calendar.timeInMillis)
+        assertEquals(8 * 3600 * 1000, calendar.timeZone.rawOffset)
+        assertEquals(18, calendar.get(Calendar.HOUR_OF_DAY))
+
+        assertEquals(1535797862631L, DateUtil.parseDBDateString("2018-09-01T10:31:02.631Z")!!.timeInMillis)
+        assertEquals(1535797862631L, DateUtil.parseDBDateString("20180901T053102.631-0500")!!.timeInMillis)
+        assertEquals(1535797862000L, DateUtil.parseDBDateString("2018-09-01T16:01:02+05:30")!!.timeInMillis)
+        assertEquals(-86400000L, DateUtil.parseDBDateString("1969-12-31T00:00:00.000000Z")!!.timeInMillis)
+
+        assertNull(DateUtil.parseDBDateString(null))
+        assertNull(DateUtil.parseDBDateString(""))
+        assertNull(DateUtil.parseDBDateString("2018-09-01"))
+        assertNull(DateUtil.parseDBDateString("2018-13-01T18:31:02.631000+08:00"))
+        assertNull(DateUtil.parseDBDateString("2018-09-01T18:31:02.631000"))
+        assertNull(DateUtil.parseDBDateString("2018-09-01T18:31:02.631000+08:00x"))
+    }
+
+    @Test
+    fun formatTest() {
+        val default = TimeZone.getDefault()
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("GMT+08:00"))
+            val calendar = Calendar.getInstance()
+            calendar.timeInMillis = 1535797862631L
+            assertEquals("2018-09-01T18:31:02.631000+08:00", DateUtil.formatDBDateString(calendar))
+
+            TimeZone.setDefault(TimeZone.getTimeZone("UTC"))
+            assertEquals("2018-09-01T10:31:02.631000Z", DateUtil.formatDBDateString(calendar))
+
+            TimeZone.setDefault(TimeZone.getTimeZone("GMT-03:30"))
+            calendar.timeInMillis = 0
+            assertEquals("1969-12-31T20:30:00.000000-03:30", DateUtil.formatDBDateString(calendar))
+        } finally {
+            TimeZone.setDefault(default)
+        }
+    }
+
+    @Test
+    fun roundTripTest() {
+        val random = Random(42)
+        val calendar = Calendar.getInstance()
+        for (i in 0 until 1000) {
+            calendar.timeInMillis = (random.nextDouble() * 4102444800000L).toLong()
+            val parsed = DateUtil.parseDBDateString(DateUtil.formatDBDateString(calendar))!!
+            assertEquals(calendar.timeInMillis, parsed.timeInMillis)
+        }
+    }
+
+    /**
+     * 和原来基于正则表达式的实现对比，只打印耗时，不做断言；需要时手动运行
+     */
+    @Ignore("benchmark")
+    @Test
+    fun benchmark() {
+        val inputs = Array(1000) { String.format("2019-%02d-%02dT%02d:28:30.%06d+08:00", it % 12 + 1, it % 28 + 1, it % 24, it * 1000) }
+        val rounds = 200
+        for (i in 0 until 20) {
+            inputs.forEach { DateUtil.parseDBDateString(it); legacyParse(it) }
+        }
+
+        var start = System.nanoTime()
+        for (i in 0 until rounds) {
+            inputs.forEach { DateUtil.parseDBDateString(it) }
+        }
+        val current = System.nanoTime() - start
+
+        start = System.nanoTime()
+        for (i in 0 until rounds) {
+            inputs.forEach { legacyParse(it) }
+        }
+        val legacy = System.nanoTime() - start
+
+        val count = inputs.size * rounds
+        println("parseDBDateString: ${current / count} ns/op, legacy regex: ${legacy / count} ns/op")
+    }
+
+    private val legacyRegexp =
+        Pattern.compile("[+-]?(\\d{4})-?(\\d{2})-?(\\d{2})T(\\d{2}):?(\\d{2}):?(\\d{2})\\.(\\d{6})[Z+](\\d{2}:?\\d{2}?)?")
+
+    private fun legacyParse(str: String): Calendar? {
+        val matcher = legacyRegexp.matcher(str)
+        if (!matcher.matches()) {
+            return null
+        }
+        val zone = Integer.valueOf(matcher.group(8).split(":")[0])
+        val ids = TimeZone.getAvailableIDs(1000 * 60 * 60 * zone)
+        val calendar = Calendar.getInstance(if (ids.isNotEmpty()) TimeZone.getTimeZone(ids[0]) else TimeZone.getDefault())
+        calendar.set(Integer.valueOf(matcher.group(1)), Integer.valueOf(matcher.group(2)) - 1,
+            Integer.valueOf(matcher.group(3)), Integer.valueOf(matcher.group(4)),
+            Integer.valueOf(matcher.group(5)), Integer.valueOf(matcher.group(6)))
+        calendar.set(Calendar.MILLISECOND, Integer.valueOf(matcher.group(7)) / 1000)
+        return calendar
+    }
+}
@@ -0,0 +1,52 @@
+package com.minapp.android.sdk.test
+
+import com.minapp.android.sdk.database.Record
+import com.minapp.android.sdk.database.query.Query
+import com.minapp.android.sdk.typeadapter.RecordPageReader
+import org.junit.Assert.*
+import org.junit.Test
+import java.io.StringReader
+
+class RecordPageReaderTest: BaseUnitTest() {
+
+    companion object {
+        private val PAGE = """
+            {"meta":{"limit":2,"offset":0,"next":null,"total_count":2},
+             "objects":[
+                {"id":"a1","name":"apple","price":2.5,"tags":["red","sweet"],"detail":{"origin":"yantai"}},
+                {"id":"b2","name":"banana","price":1.5,"tags":[],"detail":null}
+             ]}
+        """.trimIndent()
+    }
+
+    @Test
+    fun projectionTest() {
+        assertNull(RecordPageReader.projection(null))
+        assertNull(RecordPageReader.projection(Query()))
+        assertNull(RecordPageReader.projection(Query().select("-name", "-price")))
+        assertEquals(setOf("name", "price", Record.ID), RecordPageReader.projection(Query().select("name", "price")))
+    }
+
+    @Test
+    fun readAllFieldsTest() {
+        val page = RecordPageReader.read(StringReader(PAGE), null)
+        assertEquals(2L, page.meta.totalCount)
+        assertEquals(2, page.objects.size)
+        with(page.objects[0]) {
+            assertEquals("a1", id)
+            assertEquals("apple", getString("name"))
+            assertEquals(listOf("red", "sweet"), getArray("tags", String::class.java))
+            assertEquals("yantai", getJsonObject("detail")?.get("origin")?.asString)
+        }
+    }
+
+    @Test
+    fun readProjectedFieldsTest() {
+        val page = RecordPageReader.read(StringReader(PAGE), setOf("name", Record.ID))
+        assertEquals(2, page.objects.size)
+        with(page.objects[1]) {
+            assertEquals(setOf(Record.ID, "name"), _getJson().keySet())
+            assertEquals("banana", getString("name"))
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.minapp.android.sdk.test
 
 import com.minapp.android.sdk.Global
+import com.minapp.android.sdk.database.GeoPoint
 import com.minapp.android.sdk.database.Record
 import com.minapp.android.sdk.database.Table
 import org.junit.Assert.*
@@ -14,6 +15,13 @@ class RecordTest: BaseUnitTest() {
         private val TABLE = Table("fruits")
 
         private fun toJson(obj: Any) = Global.gson().toJson(obj)
+
+        /**
+         * 模拟从服务端拿到的记录
+         */
+        private fun fetched(json: String) = TABLE.createRecord().apply {
+            _setJson(Global.gson().fromJson(json.trimIndent(), com.google.gson.JsonObject::class.java))
+        }
     }
 
     private lateinit var record: Record
@@ -121,4 +129,98 @@ class RecordTest: BaseUnitTest() {
         """.trimIndent()
         assertEquals(expected, toJson(record.appendUnique("friends", listOf("lion", "gate"))))
     }
-}
\ No newline at end of file
+
+    @Test
+    fun dirtyRequestBodyTest() {
+        val fetched = fetched("""
+            {"id":"5c0e1a4c7f9f4a1b2c3d4e5f","name":"apple","price":2.5,"created_at":1543459089}
+        """)
+        assertTrue(fetched._getDirtyKeys().isEmpty())
+
+        val parent = TABLE.createRecord().apply {
+            put(Record.ID, "d03mv830vmsdof93f8dm")
+        }
+        fetched.put("price", 3)
+        fetched.put("parent", parent)
+        assertEquals("""
+            {"price":3,"parent":"d03mv830vmsdof93f8dm"}
+        """.trimIndent(), toJson(fetched._requestBody(true)))
+
+        fetched._setJson(fetched._getJson())
+        assertEquals("{}", toJson(fetched._requestBody(true)))
+    }
+
+    @Test
+    fun constructorDirtyTest() {
+        val json = """{"id":"5c0e1a4c7f9f4a1b2c3d4e5f","name":"apple"}"""
+        val record = Record(TABLE, Global.gson().fromJson(json, com.google.gson.JsonObject::class.java))
+        assertEquals(json, toJson(record._requestBody(true)))
+        assertEquals(json, toJson(record._partialBody()))
+    }
+
+    @Test
+    fun mergeJsonTest() {
+        val fetched = fetched("""
+            {"id":"5c0e1a4c7f9f4a1b2c3d4e5f","name":"apple","hits":10,"color":"red"}
+        """)
+        fetched.put("name", "banana")
+        fetched._mergeJson(Global.gson().fromJson("""
+            {"id":"5c0e1a4c7f9f4a1b2c3d4e5f","name":"apple","hits":11}
+        """.trimIndent(), com.google.gson.JsonObject::class.java))
+
+        assertEquals("banana", fetched.getString("name"))
+        assertEquals(11, fetched.getInt("hits"))
+        assertNull(fetched.getString("color"))
+        assertEquals(setOf("name"), fetched._getDirtyKeys())
+        assertEquals("""{"name":"banana"}""", toJson(fetched._requestBody(true)))
+    }
+
+    @Test
+    fun partialBodyTest() {
+        val fetched = fetched("""
+            {"id":"5c0e1a4c7f9f4a1b2c3d4e5f","name":"apple","hits":10,"tags":["a","b"],"color":"red"}
+        """)
+        with(fetched) {
+            put("name", "apple")
+            put("hits", 13)
+            put("tags", listOf("a", "b", "c"))
+            remove("color")
+            incrementBy("stock", 2)
+            append("sizes", listOf("xl"))
+        }
+        assertEquals("""
+            {"hits":13,"tags":["a","b","c"],"stock":{"${Record.INCR_BY}":2},"sizes":{"${Record.APPEND}":["xl"]},"${Record.SPECIAL_UNSET}":{"color":""}}
+        """.trimIndent(), toJson(fetched._partialBody()))
+    }
+
+    @Test
+    fun typedCacheTest() {
+        record.put("friends", listOf("lion", "gate"))
+        val friends = record.getArray("friends", String::class.java)!!
+        friends.add("harry")
+        assertEquals(listOf("lion", "gate"), record.getArray("friends", String::class.java))
+
+        record.put("friends", listOf("apple"))
+        assertEquals(listOf("apple"), record.getArray("friends", String::class.java))
+    }
+
+    class Owner {
+        var name: String? = null
+    }
+
+    @Test
+    fun typedCacheCopyTest() {
+        record.put("owner", Owner().apply { name = "harry" })
+        record.getObject("owner", Owner::class.java).name = "lion"
+        assertEquals("harry", record.getObject("owner", Owner::class.java).name)
+
+        record.put("location", GeoPoint(113.3f, 23.1f))
+        record.getGeoPoint("location")!!.latitude = 0f
+        assertEquals(23.1f, record.getGeoPoint("location")!!.latitude, 0f)
+
+        record.put("friends", listOf("lion"))
+        assertEquals(listOf("lion"), record.getArray("friends", String::class.java))
+        record._getJson().add("friends", com.google.gson.JsonArray())
+        assertEquals(emptyList<String>(), record.getArray("friends", String::class.java))
+    }
+}
@@ -0,0 +1,73 @@
+package com.minapp.android.sdk.test
+
+import com.minapp.android.sdk.util.Function
+import com.minapp.android.sdk.util.Lane
+import com.minapp.android.sdk.util.Task
+import org.junit.Assert.*
+import org.junit.Test
+import java.util.concurrent.Callable
+import java.util.concurrent.CancellationException
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+
+class TaskTest: BaseUnitTest() {
+
+    @Test
+    fun mapAndThenTest() {
+        val task = Task.submit(Lane.INTERACTIVE, Callable { 20 })
+            .map(Function<Int, Int> { it + 1 })
+            .then(Function<Int, Task<Int>> { value -> Task.submit(Lane.BULK, Callable { value * 2 }) })
+        assertEquals(42, task.get(5, TimeUnit.SECONDS))
+    }
+
+    @Test
+    fun allTest() {
+        val tasks = listOf(1, 2, 3).map { Task.submit(Lane.INTERACTIVE, Callable { it }) }
+        assertEquals(listOf(1, 2, 3), Task.all(tasks).get(5, TimeUnit.SECONDS))
+    }
+
+    @Test
+    fun allFailFastTest() {
+        val slow = Task.submit(Lane.INTERACTIVE, Callable { Thread.sleep(5000); 1 })
+        val failing = Task.submit<Int>(Lane.INTERACTIVE, Callable { throw IllegalStateException() })
+        try {
+            Task.all(listOf(slow, failing)).get(5, TimeUnit.SECONDS)
+            fail()
+        } catch (e: ExecutionException) {
+            assertTrue(e.cause is IllegalStateException)
+        }
+        assertTrue(slow.isCancelled)
+    }
+
+    @Test
+    fun cancelRunsHooksTest() {
+        val started = CountDownLatch(1)
+        val cancelled = CountDownLatch(1)
+        val task = Task.submit(Lane.INTERACTIVE, Callable {
+            Task.current()!!.addCancelHook(Runnable { cancelled.countDown() })
+            started.countDown()
+            Thread.sleep(5000)
+            1
+        })
+        assertTrue(started.await(5, TimeUnit.SECONDS))
+        assertTrue(task.cancel(true))
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS))
+        try {
+            task.get()
+            fail()
+        } catch (e: CancellationException) {}
+    }
+
+    @Test
+    fun timeoutTest() {
+        val task = Task.submit(Lane.INTERACTIVE, Callable { Thread.sleep(5000); 1 }).timeout(50)
+        try {
+            task.get(5, TimeUnit.SECONDS)
+            fail()
+        } catch (e: ExecutionException) {
+            assertTrue(e.cause is TimeoutException)
+        }
+    }
+}